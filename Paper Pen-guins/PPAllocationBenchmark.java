@@ -0,0 +1,32 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * PPAllocationBenchmark - measures heap allocation by PPStateMinimax search after warm-up, using the per-thread allocation
+ * counter of the HotSpot ThreadMXBean.  Positions are set up as in PPTranspositionBenchmark, and each position is searched
+ * once to warm up and then again, from an empty transposition table, to measure.
+ *
+ * Usage: java PPAllocationBenchmark [searchDepth [numPositions [randomPlies]]]
+ */
+public class PPAllocationBenchmark {
+
+	public static void main(String[] args) {
+		int searchDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		PPStateMinimax player = new PPStateMinimax(searchDepth);
+		System.out.println("position  search nodes  bytes allocated  bytes/node");
+		for (int i = 0; i < numPositions; i++) {
+			PPTranspositionBenchmark.setUpPosition(player, i, randomPlies);
+			player.getPlay(Long.MAX_VALUE); // warm up
+			player.transpositionTable.clear();
+			long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+			player.getPlay(Long.MAX_VALUE);
+			long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+			System.out.printf("%8d  %12d  %15d  %10.4f\n", i, player.nodeCount, bytes, (double) bytes / player.nodeCount);
+			player = new PPStateMinimax(searchDepth);
+		}
+	}
+}
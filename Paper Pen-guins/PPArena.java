@@ -0,0 +1,432 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PPArena - a headless tournament runner.  Two PPPlayer implementations play each board seed twice, once with each player as
+ * SQUARE, on a thread pool.  Each worker thread creates a player of each specification once and reuses it for all of its games,
+ * clearing the tables of a PPStateMinimax (see PPStateMinimax.clearTables) before each game.  Each game has per-player clocks.
+ * A play that is illegal or made after the player's clock has run out loses the game, as does an exception thrown by a player's
+ * getPlay or makeMove, after which the worker thread replaces that player.
+ *
+ * Results are written one game per line, in the order games finish, as comma-separated values:
+ * seed,square,circle,squareScore,circleScore,result,plies,squareMillis,circleMillis,termination
+ * where result is 1-0, 0-1, or 1/2-1/2 and termination is normal, time, illegal, or error.
+ *
+ * Finally, the score of the first player is reported with a 95% confidence interval, the corresponding Elo difference, and a
+ * generalized sequential probability ratio test (GSPRT) of Elo difference elo0 against elo1 under a trinomial (win, draw,
+ * loss) model.  The variance of both is estimated with PSEUDO_COUNT pseudo-games of each outcome added to the games played, so
+ * that a run of only wins or only losses has neither a zero-width interval nor an unbounded log-likelihood ratio.  The GSPRT is
+ * updated after each finished game, and the run stops early, abandoning the games in progress, once it accepts either hypothesis.
+ *
+ * If a game database base name other than - is given, each game is also appended to that PPGameDatabase, with the player
+ * specifications as names.
+ *
+ * Games are played on boards of the given size (PPState.SIZE by default), refereed by a PPState of that size (see PPGeometry).
+ *
+ * Players are given by class name, optionally followed by a colon and an int constructor argument, and optionally followed by
+ * a slash and the class name of a PPEvaluator for a PPStateMinimax player, e.g. PPStateMinimax:3 or PPStateMinimax/PPVoronoiEval.
+ * On boards of other sizes than PPState.SIZE, players are constructed with the PPGeometry of the board before any int argument,
+ * e.g. PPStateMinimax:3 plays size 10 as new PPStateMinimax(PPGeometry.forSize(10), 3).
+ *
+ * Usage: java PPArena playerA playerB [numSeeds [numThreads [gameMillis [firstSeed [resultsFile [elo0 elo1 [gameDatabase [boardSize]]]]]]]]
+ */
+public class PPArena {
+
+	/**
+	 * SPRT false positive and false negative rates
+	 */
+	static final double SPRT_ALPHA = 0.05, SPRT_BETA = 0.05;
+
+	/**
+	 * pseudo-games of each outcome (win, draw, and loss) added to the games played to estimate the per-game score variance
+	 */
+	static final double PSEUDO_COUNT = 0.5;
+
+	/**
+	 * Create a player from a specification.
+	 * @param spec - class name, optionally followed by a colon and an int constructor argument, and optionally followed by a
+	 * slash and a PPEvaluator class name
+	 * @param boardSize - board width and height
+	 * @return a new player
+	 */
+	static PPPlayer newPlayer(String spec, int boardSize) {
+		try {
+			int slash = spec.indexOf('/');
+			String playerSpec = (slash == -1) ? spec : spec.substring(0, slash);
+			int colon = playerSpec.indexOf(':');
+			Class<?> playerClass = Class.forName((colon == -1) ? playerSpec : playerSpec.substring(0, colon));
+			PPPlayer player;
+			if (boardSize == PPState.SIZE) {
+				if (colon == -1)
+					player = (PPPlayer) playerClass.getDeclaredConstructor().newInstance();
+				else
+					player = (PPPlayer) playerClass.getDeclaredConstructor(int.class).newInstance(Integer.parseInt(playerSpec.substring(colon + 1)));
+			}
+			else {
+				PPGeometry geometry = PPGeometry.forSize(boardSize);
+				if (colon == -1)
+					player = (PPPlayer) playerClass.getDeclaredConstructor(PPGeometry.class).newInstance(geometry);
+				else
+					player = (PPPlayer) playerClass.getDeclaredConstructor(PPGeometry.class, int.class).newInstance(geometry,
+							Integer.parseInt(playerSpec.substring(colon + 1)));
+			}
+			if (slash != -1)
+				((PPStateMinimax) player).setEvaluator((PPEvaluator) Class.forName(spec.substring(slash + 1)).getDeclaredConstructor().newInstance());
+			return player;
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Cannot create player " + spec, e);
+		}
+	}
+
+	/**
+	 * @param players - players of a worker thread by specification
+	 * @param spec - player specification
+	 * @param boardSize - board width and height
+	 * @return the worker thread's player of the given specification, with its tables cleared for a new game, or a new player if
+	 * the worker thread has none
+	 */
+	static PPPlayer workerPlayer(HashMap<String, PPPlayer> players, String spec, int boardSize) {
+		PPPlayer player = players.get(spec);
+		if (player == null)
+			players.put(spec, player = newPlayer(spec, boardSize));
+		else if (player instanceof PPStateMinimax)
+			((PPStateMinimax) player).clearTables();
+		return player;
+	}
+
+	/**
+	 * Play a game with new players.
+	 * @param seed - PaperPenguins board seed
+	 * @param squareSpec - SQUARE player specification
+	 * @param circleSpec - CIRCLE player specification
+	 * @param gameMillis - decision-making milliseconds of each player for the game
+	 * @return the game result line
+	 */
+	static String playGame(long seed, String squareSpec, String circleSpec, long gameMillis) {
+		PPPlayer square = newPlayer(squareSpec, PPState.SIZE), circle = newPlayer(circleSpec, PPState.SIZE);
+		String line = playGame(seed, squareSpec, circleSpec, new PPPlayer[] {square, circle}, gameMillis, null, PPState.SIZE);
+		close(square);
+		close(circle);
+		return line;
+	}
+
+	/**
+	 * Release the threads of a player that has them (see PPStateMinimax.close).
+	 * @param player - player
+	 */
+	static void close(PPPlayer player) {
+		if (player instanceof PPStateMinimax)
+			((PPStateMinimax) player).close();
+	}
+
+	/**
+	 * Play a game and record it.  A player whose getPlay or makeMove throws an exception loses the game and is replaced by null
+	 * in the given players.
+	 * @param seed - PaperPenguins board seed
+	 * @param squareSpec - SQUARE player specification
+	 * @param circleSpec - CIRCLE player specification
+	 * @param players - SQUARE and CIRCLE players, which are initialized with the seed
+	 * @param gameMillis - decision-making milliseconds of each player for the game
+	 * @param record - empty record of a game of the board size and seed with SQUARE first, to which the legal plays and the
+	 * final score are added, or null
+	 * @param boardSize - board width and height
+	 * @return the game result line
+	 */
+	static String playGame(long seed, String squareSpec, String circleSpec, PPPlayer[] players, long gameMillis, PPGameRecord record,
+			int boardSize) {
+		String[] specs = {squareSpec, circleSpec};
+		PPState referee = new PPState(PPGeometry.forSize(boardSize));
+		referee.init(seed);
+		for (PPPlayer player : players)
+			player.init(seed);
+		long[] millisUsed = new long[2];
+		String termination = "normal";
+		int loser = -1; // index of a player who lost by time, illegal play, or error
+		while (!referee.gameOver()) {
+			int p = (referee.getCurrentPlayer() == PPState.SQUARE) ? 0 : 1;
+			long startNanos = System.nanoTime();
+			int[] play;
+			try {
+				play = players[p].getPlay(gameMillis - millisUsed[p]);
+			}
+			catch (RuntimeException e) {
+				reportError(seed, specs[p], e);
+				termination = "error";
+				loser = p;
+				break;
+			}
+			long playMillis = (System.nanoTime() - startNanos) / 1000000;
+			millisUsed[p] += playMillis;
+			if (millisUsed[p] > gameMillis) {
+				termination = "time";
+				loser = p;
+				break;
+			}
+			if (play == null || play.length < 2 || !referee.isLegalMove(play[0], play[1])) {
+				termination = "illegal";
+				loser = p;
+				break;
+			}
+			int srcPos = play[0], destPos = play[1]; // players may reuse the returned array
+
+			// The player to move makes its play first and its opponent after the referee, so that the player who fails is the
+			// player to move after the recorded plays.
+			try {
+				players[p].makeMove(srcPos, destPos);
+			}
+			catch (RuntimeException e) {
+				reportError(seed, specs[p], e);
+				termination = "error";
+				loser = p;
+				break;
+			}
+			referee.makeMove(srcPos, destPos);
+			if (record != null)
+				record.add(srcPos, destPos, (int) playMillis);
+			try {
+				players[1 - p].makeMove(srcPos, destPos);
+			}
+			catch (RuntimeException e) {
+				reportError(seed, specs[1 - p], e);
+				termination = "error";
+				loser = 1 - p;
+				break;
+			}
+		}
+		if (termination.equals("error"))
+			players[loser] = null;
+		int[] score = referee.getScore();
+		if (record != null) {
+			record.setNames(squareSpec, circleSpec);
+			record.setScore(score[0], score[1]);
+			record.setTermination(termination.equals("time") ? PPGameRecord.TIME : termination.equals("illegal") ? PPGameRecord.ILLEGAL
+					: termination.equals("error") ? PPGameRecord.ERROR : PPGameRecord.NORMAL);
+		}
+		String result = (loser == 0) ? "0-1" : (loser == 1) ? "1-0" : (score[0] > score[1]) ? "1-0" : (score[0] < score[1]) ? "0-1" : "1/2-1/2";
+		return String.format("%d,%s,%s,%d,%d,%s,%d,%d,%d,%s", seed, squareSpec, circleSpec, score[0], score[1], result,
+				referee.getTurnsTaken(), millisUsed[0], millisUsed[1], termination);
+	}
+
+	/**
+	 * Report a player's exception, which loses the game, on standard error.
+	 * @param seed - PaperPenguins board seed of the game
+	 * @param spec - player specification
+	 * @param e - exception thrown by the player
+	 */
+	static void reportError(long seed, String spec, RuntimeException e) {
+		synchronized (System.err) {
+			System.err.println("Seed " + seed + ": " + spec + " failed and forfeits the game.");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @param playerSpec - player specification
+	 * @param resultLine - game result line
+	 * @return the game score of the player: 1 for a win, 0.5 for a draw, or 0 for a loss
+	 */
+	static double gameScore(String playerSpec, String resultLine) {
+		String[] fields = resultLine.split(",");
+		boolean square = fields[1].equals(playerSpec);
+		return fields[5].equals("1-0") ? (square ? 1 : 0) : fields[5].equals("0-1") ? (square ? 0 : 1) : 0.5;
+	}
+
+	/**
+	 * @param score - expected game score
+	 * @return the Elo rating difference that predicts the given expected score
+	 */
+	static double elo(double score) {
+		score = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+		return -400 * Math.log10(1 / score - 1);
+	}
+
+	/**
+	 * @param wins - games won
+	 * @param draws - games drawn
+	 * @param losses - games lost
+	 * @return the per-game score variance of the trinomial outcome frequencies with PSEUDO_COUNT pseudo-games of each outcome
+	 */
+	static double scoreVariance(int wins, int draws, int losses) {
+		double w = wins + PSEUDO_COUNT, d = draws + PSEUDO_COUNT, l = losses + PSEUDO_COUNT, n = w + d + l;
+		double mean = (w + 0.5 * d) / n;
+		return (w * (1 - mean) * (1 - mean) + d * (0.5 - mean) * (0.5 - mean) + l * mean * mean) / n;
+	}
+
+	/**
+	 * Compute the GSPRT log-likelihood ratio of expected scores score1 against score0, with the normal approximation of the
+	 * trinomial likelihood and the variance of scoreVariance.
+	 * @param wins - games won
+	 * @param draws - games drawn
+	 * @param losses - games lost
+	 * @param score0 - expected game score of the null hypothesis
+	 * @param score1 - expected game score of the alternative hypothesis
+	 * @return the log-likelihood ratio
+	 */
+	static double llr(int wins, int draws, int losses, double score0, double score1) {
+		int n = wins + draws + losses;
+		if (n == 0)
+			return 0;
+		double mean = (wins + 0.5 * draws) / n;
+		return n * (score1 - score0) * (2 * mean - score0 - score1) / (2 * scoreVariance(wins, draws, losses));
+	}
+
+	/**
+	 * @param elo - Elo rating difference
+	 * @return the expected game score for the given Elo rating difference
+	 */
+	static double expectedScore(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: java PPArena playerA playerB [numSeeds [numThreads [gameMillis [firstSeed [resultsFile [elo0 elo1 [gameDatabase [boardSize]]]]]]]]");
+			System.exit(2);
+		}
+		final String specA = args[0], specB = args[1];
+		if (specA.equals(specB)) {
+			System.err.println("Players must have distinct specifications.");
+			System.exit(2);
+		}
+		int numSeeds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		final long gameMillis = args.length > 4 ? Long.parseLong(args[4]) : 10000;
+		long firstSeed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+		String resultsFile = args.length > 6 ? args[6] : "-";
+		double elo0 = args.length > 8 ? Double.parseDouble(args[7]) : 0;
+		double elo1 = args.length > 8 ? Double.parseDouble(args[8]) : 10;
+		String gameDatabase = (args.length > 9 && !args[9].equals("-")) ? args[9] : null;
+		final int boardSize = args.length > 10 ? Integer.parseInt(args[10]) : PPState.SIZE;
+		PPGeometry.forSize(boardSize); // fail fast on a bad board size
+		close(newPlayer(specA, boardSize)); // fail fast on a bad specification
+		close(newPlayer(specB, boardSize));
+
+		// Worker threads close their players as they exit.  They are daemons so that games in progress when the GSPRT stops the
+		// run do not delay exit.
+		long startMillis = System.currentTimeMillis();
+		final ThreadLocal<HashMap<String, PPPlayer>> workerPlayers = new ThreadLocal<HashMap<String, PPPlayer>>() {
+			protected HashMap<String, PPPlayer> initialValue() {
+				return new HashMap<String, PPPlayer>();
+			}
+		};
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+			public Thread newThread(final Runnable r) {
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						try {
+							r.run();
+						}
+						finally {
+							for (PPPlayer player : workerPlayers.get().values())
+								close(player);
+						}
+					}
+				}, "PPArena worker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		CompletionService<Integer> finished = new ExecutorCompletionService<Integer>(pool);
+		int numGames = 2 * numSeeds;
+		final String[] lines = new String[numGames];
+		final PPGameRecord[] records = new PPGameRecord[numGames];
+		for (int i = 0; i < numGames; i++) {
+			final int game = i;
+			final long gameSeed = firstSeed + i / 2;
+			final String squareSpec = (i % 2 == 0) ? specA : specB, circleSpec = (i % 2 == 0) ? specB : specA;
+			if (gameDatabase != null)
+				records[i] = new PPGameRecord(boardSize, gameSeed, PPState.SQUARE);
+			finished.submit(new Callable<Integer>() {
+				public Integer call() {
+					HashMap<String, PPPlayer> players = workerPlayers.get();
+					PPPlayer square = workerPlayer(players, squareSpec, boardSize), circle = workerPlayer(players, circleSpec, boardSize);
+					PPPlayer[] gamePlayers = {square, circle};
+					lines[game] = playGame(gameSeed, squareSpec, circleSpec, gamePlayers, gameMillis, records[game], boardSize);
+					if (gamePlayers[0] == null) {
+						players.remove(squareSpec);
+						close(square);
+					}
+					if (gamePlayers[1] == null) {
+						players.remove(circleSpec);
+						close(circle);
+					}
+					return game;
+				}
+			});
+		}
+
+		// Tally games as they finish, updating the GSPRT after each
+		double score0 = expectedScore(elo0), score1 = expectedScore(elo1);
+		double lower = Math.log(SPRT_BETA / (1 - SPRT_ALPHA)), upper = Math.log((1 - SPRT_BETA) / SPRT_ALPHA);
+		double llr = 0;
+		Writer out = resultsFile.equals("-") ? new BufferedWriter(new OutputStreamWriter(System.out)) : new BufferedWriter(new FileWriter(resultsFile));
+		PPGameDatabase.Writer games = (gameDatabase == null) ? null : new PPGameDatabase.Writer(gameDatabase);
+		int wins = 0, draws = 0, losses = 0, failedGames = 0;
+		try {
+			for (int i = 0; i < numGames && llr > lower && llr < upper; i++) {
+				int game;
+				try {
+					game = finished.take().get();
+				}
+				catch (ExecutionException e) { // a player failed before the first play, e.g. in init
+					System.err.println("A game failed to start and is not counted: " + e.getCause());
+					failedGames++;
+					continue;
+				}
+				String line = lines[game];
+				out.write(line);
+				out.write('\n');
+				if (games != null)
+					games.append(records[game]);
+				double score = gameScore(specA, line);
+				if (score == 1)
+					wins++;
+				else if (score == 0)
+					losses++;
+				else
+					draws++;
+				llr = llr(wins, draws, losses, score0, score1);
+			}
+		}
+		finally {
+			out.flush();
+			if (!resultsFile.equals("-"))
+				out.close();
+			if (games != null)
+				games.close();
+			pool.shutdownNow();
+			pool.awaitTermination(1, TimeUnit.SECONDS); // let idle workers close their players
+		}
+		double elapsedMinutes = (System.currentTimeMillis() - startMillis) / 60000.0;
+
+		// Score statistics, with the per-game variance including draws (a trinomial model)
+		int n = wins + draws + losses;
+		if (n == 0) {
+			System.err.println("No game was played.");
+			System.exit(1);
+		}
+		double mean = (wins + 0.5 * draws) / n;
+		double margin = 1.96 * Math.sqrt(scoreVariance(wins, draws, losses) / n);
+		System.out.printf("%s vs. %s: +%d =%d -%d in %d games (%.0f games/min)\n", specA, specB, wins, draws, losses, n, n / elapsedMinutes);
+		if (failedGames > 0)
+			System.out.printf("%d games failed to start\n", failedGames);
+		System.out.printf("score %.3f +/- %.3f (95%%), Elo %+.1f [%+.1f, %+.1f]\n", mean, margin, elo(mean), elo(mean - margin), elo(mean + margin));
+
+		System.out.printf("GSPRT elo0 %.1f elo1 %.1f: LLR %.2f [%.2f, %.2f] %s\n", elo0, elo1, llr, lower, upper,
+				(llr >= upper) ? "H1 accepted" : (llr <= lower) ? "H0 accepted" : "continue");
+		if (n + failedGames < numGames)
+			System.out.printf("stopped early after %d of %d games\n", n + failedGames, numGames);
+	}
+}
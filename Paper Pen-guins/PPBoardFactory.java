@@ -0,0 +1,218 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PPBoardFactory - generates PaperPenguins boards of one size as flat row-major fish arrays (position row * size + col, as in
+ * PPState.grid) or fish bitboards (as PPState.fishBits), without allocating.
+ *
+ * Boards are generated by the shuffle of the PaperPenguins constructor.  With the JAVA_RANDOM generator, the shuffle draws
+ * from an inlined copy of the java.util.Random linear congruential generator, so boards are identical to those of
+ * PaperPenguins for every seed.  The SPLITMIX generator draws from SplitMix64 instead, a 64-bit generator of better
+ * statistical quality that is also reproducible by seed, but its boards differ from those of PaperPenguins.
+ *
+ * board(seed) returns boards from a least-recently-used cache of the factory, which PPState.init uses so that games of the same
+ * seed share one generated board.  generate(firstSeed, count, numThreads) fills boards of a seed range in parallel.  Factories
+ * may be shared by threads.  PPBoardFactoryBenchmark checks boards against PaperPenguins and measures throughput.
+ */
+public class PPBoardFactory {
+
+	/**
+	 * pseudorandom number generators of the shuffle
+	 */
+	public static final int JAVA_RANDOM = 0, SPLITMIX = 1;
+
+	/**
+	 * the default number of cached boards
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	static final long MULTIPLIER = 0x5DEECE66DL, ADDEND = 0xBL, MASK = (1L << 48) - 1;
+
+	static final HashMap<Integer, PPBoardFactory> factories = new HashMap<Integer, PPBoardFactory>();
+
+	int size, numPos, generator;
+
+	/**
+	 * fish numbers before the shuffle: threes, then twos, then ones
+	 */
+	int[] unshuffled;
+
+	final LinkedHashMap<Long, int[]> cache;
+	long cacheHits, cacheMisses;
+
+	final ThreadLocal<int[]> scratch = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[numPos];
+		}
+	};
+
+	/**
+	 * Create a factory with the JAVA_RANDOM generator and a cache of DEFAULT_CACHE_SIZE boards.
+	 * @param size - board width and height
+	 */
+	public PPBoardFactory(int size) {
+		this(size, JAVA_RANDOM, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param size - board width and height
+	 * @param generator - JAVA_RANDOM or SPLITMIX
+	 * @param cacheSize - number of cached boards, or 0 for none
+	 */
+	public PPBoardFactory(int size, int generator, final int cacheSize) {
+		this.size = size;
+		this.generator = generator;
+		numPos = size * size;
+		int threes = (int) Math.round(size * size / 6.0);
+		int twos = (int) Math.round(size * size / 3.0);
+		unshuffled = new int[numPos];
+		for (int i = 0; i < numPos; i++)
+			unshuffled[i] = (i < threes) ? 3 : (i < threes + twos) ? 2 : 1;
+		cache = (cacheSize == 0) ? null : new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * @param size - board width and height
+	 * @return a shared factory of boards of the given size with the JAVA_RANDOM generator and a cache of DEFAULT_CACHE_SIZE boards
+	 */
+	public static synchronized PPBoardFactory forSize(int size) {
+		PPBoardFactory factory = factories.get(size);
+		if (factory == null) {
+			factory = new PPBoardFactory(size);
+			factories.put(size, factory);
+		}
+		return factory;
+	}
+
+	/**
+	 * Generate a board.
+	 * @param seed - board seed
+	 * @param out - array to fill with the fish numbers of the board by position
+	 * @param offset - index of out of position 0
+	 */
+	public void generate(long seed, int[] out, int offset) {
+		System.arraycopy(unshuffled, 0, out, offset, numPos);
+		if (generator == JAVA_RANDOM) {
+			// java.util.Random(seed).nextInt(numPos) for each position
+			long state = (seed ^ MULTIPLIER) & MASK;
+			boolean powerOfTwo = (numPos & (numPos - 1)) == 0;
+			for (int i = 0; i < numPos; i++) {
+				state = (state * MULTIPLIER + ADDEND) & MASK;
+				int r = (int) (state >>> 17);
+				int j;
+				if (powerOfTwo)
+					j = (int) ((numPos * (long) r) >> 31);
+				else {
+					for (j = r % numPos; r - j + numPos - 1 < 0; j = r % numPos) {
+						state = (state * MULTIPLIER + ADDEND) & MASK;
+						r = (int) (state >>> 17);
+					}
+				}
+				int temp = out[offset + i];
+				out[offset + i] = out[offset + j];
+				out[offset + j] = temp;
+			}
+		}
+		else {
+			long state = seed;
+			for (int i = 0; i < numPos; i++) {
+				state += 0x9E3779B97F4A7C15L;
+				long z = state;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				z ^= z >>> 31;
+				int j = (int) (((z >>> 32) * numPos) >>> 32);
+				int temp = out[offset + i];
+				out[offset + i] = out[offset + j];
+				out[offset + j] = temp;
+			}
+		}
+	}
+
+	/**
+	 * Generate a board of at most 64 positions as fish bitboards.
+	 * @param seed - board seed
+	 * @param fishBits - array of at least 3 bitboards to set to the positions of 1, 2, and 3 fish
+	 */
+	public void generateBits(long seed, long[] fishBits) {
+		int[] board = scratch.get();
+		generate(seed, board, 0);
+		fishBits[0] = fishBits[1] = fishBits[2] = 0;
+		for (int pos = 0; pos < numPos; pos++)
+			fishBits[board[pos] - 1] |= 1L << pos;
+	}
+
+	/**
+	 * @param seed - board seed
+	 * @return the fish numbers of the board by position, from the cache if possible.  The array may be shared and must not be
+	 * changed.
+	 */
+	public int[] board(long seed) {
+		if (cache != null)
+			synchronized (cache) {
+				int[] board = cache.get(seed);
+				if (board != null) {
+					cacheHits++;
+					return board;
+				}
+				cacheMisses++;
+			}
+		int[] board = new int[numPos];
+		generate(seed, board, 0);
+		if (cache != null)
+			synchronized (cache) {
+				cache.put(seed, board);
+			}
+		return board;
+	}
+
+	/**
+	 * Generate the boards of a range of seeds in parallel, bypassing the cache.
+	 * @param firstSeed - seed of the first board
+	 * @param count - number of boards
+	 * @param numThreads - number of threads
+	 * @return the fish numbers of the boards, with position pos of board i (of seed firstSeed + i) at index i * size * size + pos
+	 */
+	public int[] generate(final long firstSeed, int count, int numThreads) {
+		final int[] boards = new int[count * numPos];
+		numThreads = Math.max(1, Math.min(numThreads, count));
+		if (numThreads == 1) {
+			for (int i = 0; i < count; i++)
+				generate(firstSeed + i, boards, i * numPos);
+			return boards;
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		try {
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < numThreads; t++) {
+				final int start = (int) ((long) count * t / numThreads), end = (int) ((long) count * (t + 1) / numThreads);
+				futures.add(pool.submit(new Callable<Object>() {
+					public Object call() {
+						for (int i = start; i < end; i++)
+							generate(firstSeed + i, boards, i * numPos);
+						return null;
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Board generation failed", e);
+		}
+		finally {
+			pool.shutdown();
+		}
+		return boards;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * PPBoardFactoryBenchmark - checks PPBoardFactory boards against PaperPenguins boards for several board sizes, then measures
+ * boards per second of new PaperPenguins, PPBoardFactory generation with each generator (flat and bitboard output), cached
+ * boards, PPState.init, and bulk parallel generation.
+ *
+ * Usage: java PPBoardFactoryBenchmark [numSeeds [numThreads]]
+ */
+public class PPBoardFactoryBenchmark {
+
+	public static void main(String[] args) {
+		int numSeeds = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		// Check
+		int mismatches = 0, checked = 0;
+		for (int size = 4; size <= 12; size++) {
+			PPBoardFactory factory = new PPBoardFactory(size, PPBoardFactory.JAVA_RANDOM, 0);
+			int[] board = new int[size * size];
+			long[] fishBits = new long[3];
+			for (long seed = -500; seed < 500; seed++) {
+				PaperPenguins pp = new PaperPenguins(size, seed);
+				factory.generate(seed, board, 0);
+				if (size <= 8)
+					factory.generateBits(seed, fishBits);
+				boolean same = true;
+				for (int pos = 0; pos < size * size; pos++)
+					same &= board[pos] == pp.grid[pos / size][pos % size]
+							&& (size > 8 || (fishBits[pp.grid[pos / size][pos % size] - 1] & 1L << pos) != 0);
+				mismatches += same ? 0 : 1;
+				checked++;
+			}
+		}
+		System.out.printf("%d boards of sizes 4 to 12 checked against PaperPenguins, %d mismatches\n", checked, mismatches);
+
+		// Time
+		int size = PPState.SIZE;
+		int[] board = new int[size * size];
+		long[] fishBits = new long[3];
+		PPBoardFactory javaRandom = new PPBoardFactory(size, PPBoardFactory.JAVA_RANDOM, 0);
+		PPBoardFactory splitMix = new PPBoardFactory(size, PPBoardFactory.SPLITMIX, 0);
+		PPBoardFactory cached = new PPBoardFactory(size);
+		PPState state = new PPState();
+		for (int round = 0; round < 2; round++) { // the first round warms up
+			long checksum = 0;
+			long startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++)
+				checksum += new PaperPenguins(size, seed).grid[0][0];
+			double paperPenguins = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++) {
+				javaRandom.generate(seed, board, 0);
+				checksum += board[0];
+			}
+			double javaRandomFlat = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++) {
+				javaRandom.generateBits(seed, fishBits);
+				checksum += fishBits[2];
+			}
+			double javaRandomBits = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++) {
+				splitMix.generate(seed, board, 0);
+				checksum += board[0];
+			}
+			double splitMixFlat = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++)
+				checksum += cached.board(seed % 100)[0];
+			double cachedBoards = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			for (int seed = 0; seed < numSeeds; seed++) {
+				state.init(seed % 100);
+				checksum += state.hash;
+			}
+			double init = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			startNanos = System.nanoTime();
+			checksum += javaRandom.generate(0, numSeeds, numThreads)[0];
+			double bulk = numSeeds / ((System.nanoTime() - startNanos) / 1e9);
+			if (round == 1) {
+				System.out.printf("boards per second, size %d, %d seeds (checksum %d):\n", size, numSeeds, checksum);
+				System.out.printf("new PaperPenguins                   %12.0f\n", paperPenguins);
+				System.out.printf("JAVA_RANDOM generate (flat)         %12.0f\n", javaRandomFlat);
+				System.out.printf("JAVA_RANDOM generateBits            %12.0f\n", javaRandomBits);
+				System.out.printf("SPLITMIX generate (flat)            %12.0f\n", splitMixFlat);
+				System.out.printf("board, 100 seeds cached             %12.0f\n", cachedBoards);
+				System.out.printf("PPState.init, 100 seeds cached      %12.0f\n", init);
+				System.out.printf("bulk generate, %2d threads           %12.0f\n", numThreads, bulk);
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PPConcurrentGames - a stress test of concurrent search.  Plays many PPStateMinimax self-play games one after another, then
+ * plays the same games concurrently on a thread pool, and checks that each game produces the same moves and final scores.
+ *
+ * Usage: java PPConcurrentGames [numGames [numThreads [searchDepth]]]
+ */
+public class PPConcurrentGames {
+
+	/**
+	 * Play a PPStateMinimax self-play game from the given seed.
+	 * @param seed - PaperPenguins board seed
+	 * @param searchDepth - negamax search depth
+	 * @return a String record of all moves and the final score of the game
+	 */
+	public static String playGame(long seed, int searchDepth) {
+		PPStateMinimax state = new PPStateMinimax(searchDepth);
+		state.init(seed);
+		StringBuilder sb = new StringBuilder();
+		while (!state.gameOver()) {
+			int[] play = state.getPlay(Long.MAX_VALUE);
+			sb.append(state.moveToString(play[0], play[1])).append(", ");
+			state.makeMove(play[0], play[1]);
+		}
+		int[] score = state.getScore();
+		sb.append(score[0]).append("-").append(score[1]);
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		final int searchDepth = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+		// Play games serially
+		long startMillis = System.currentTimeMillis();
+		String[] serialResults = new String[numGames];
+		for (int i = 0; i < numGames; i++)
+			serialResults[i] = playGame(i, searchDepth);
+		long serialMillis = System.currentTimeMillis() - startMillis;
+
+		// Play the same games concurrently
+		startMillis = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int i = 0; i < numGames; i++) {
+			final long seed = i;
+			futures.add(pool.submit(new Callable<String>() {
+				public String call() {
+					return playGame(seed, searchDepth);
+				}
+			}));
+		}
+		int mismatches = 0;
+		for (int i = 0; i < numGames; i++) {
+			String result = futures.get(i).get();
+			if (!result.equals(serialResults[i])) {
+				mismatches++;
+				System.out.printf("Game %d differs.\nSerial:     %s\nConcurrent: %s\n", i, serialResults[i], result);
+			}
+		}
+		pool.shutdown();
+		long concurrentMillis = System.currentTimeMillis() - startMillis;
+
+		System.out.printf("%d games at depth %d: serial %.3f sec, concurrent (%d threads) %.3f sec, %d mismatches.\n",
+				numGames, searchDepth, serialMillis / 1000.0, numThreads, concurrentMillis / 1000.0, mismatches);
+		if (mismatches > 0)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,32 @@
+/**
+ * PPDistanceEval - the evaluation of PPState.simpleEval: the score margin plus the fish of positions that the player to move
+ * reaches in fewer queen moves than the opponent, less the fish of positions the opponent reaches in fewer (after Lorentz's
+ * Amazons evaluation).  Whether a position at equal distance counts one point for the player to move is chosen at construction
+ * rather than by PPState.DISTANCE_TIE_GOES_TO_CURRENT_PLAYER.
+ */
+public class PPDistanceEval implements PPEvaluator {
+
+	boolean tieGoesToCurrentPlayer;
+
+	public PPDistanceEval() {
+		this(PPState.DISTANCE_TIE_GOES_TO_CURRENT_PLAYER);
+	}
+
+	/**
+	 * @param tieGoesToCurrentPlayer - whether each position at equal distance from both players counts one point for the player
+	 * to move
+	 */
+	public PPDistanceEval(boolean tieGoesToCurrentPlayer) {
+		this.tieGoesToCurrentPlayer = tieGoesToCurrentPlayer;
+	}
+
+	public int evaluate(PPState state) {
+		int tieValue = !tieGoesToCurrentPlayer ? 0 : (state.currentPlayer == PPState.SQUARE) ? 1 : -1;
+		int count = state.score[0] - state.score[1] + state.territory(state.pieceBits[0], state.pieceBits[1], ~state.occupiedBits, tieValue);
+		return (state.currentPlayer == PPState.SQUARE) ? count : -count;
+	}
+
+	public PPEvaluator copy() {
+		return this;
+	}
+}
@@ -0,0 +1,373 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PPEndgameSolver - an exact solver for states whose empty positions have split into regions that only one player's penguins
+ * can reach.
+ *
+ * Once no region is adjacent to penguins of both players, the players no longer interact: each player will collect the most fish
+ * their own penguins can collect from their own regions, whatever the other player does.  The penguins of a player fall into
+ * groups that share regions (possibly through a penguin adjacent to two regions), and each group is solved independently as a
+ * longest path with fish problem: the greatest fish sum of a sequence of moves of the group's penguins.  Group values are
+ * memoized by the group's remaining empty positions and the (sorted) positions of its penguins, and a group search stops as soon
+ * as it collects all fish its penguins can still reach.
+ *
+ * The solver only solves states of boards with bitboards, i.e. of at most 64 positions (see PPGeometry).
+ *
+ * The main method checks solver results against exhaustive negamax search and compares solver time with depth-limited search.
+ */
+public class PPEndgameSolver {
+
+	/**
+	 * the default greatest number of empty positions of a group of penguins that the solver will attempt
+	 */
+	public static final int DEFAULT_MAX_REGION_SIZE = 28;
+
+	/**
+	 * the default greatest number of search nodes of one solve before it is abandoned
+	 */
+	public static final long DEFAULT_MAX_NODES = 1 << 22;
+
+	/**
+	 * the default number of memoized group values, a power of 2
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 1 << 18;
+
+	int maxRegionSize = DEFAULT_MAX_REGION_SIZE;
+	long maxNodes = DEFAULT_MAX_NODES;
+
+	// Memo of group values by remaining empty positions and packed sorted penguin positions (see packPieces)
+	long[] emptyKeys;
+	int[] pieceKeys;
+	int[] values;
+	int indexMask;
+	long[] cachedFishBits = new long[3];
+	PPGeometry cachedGeometry;
+
+	PPState state; // state of the current solve, whose board geometry the search follows
+	int[] fish = new int[Long.SIZE]; // initial fish value of each position
+	int[][] piecesAt = new int[Long.SIZE + 1][PPState.NUM_PLAYER_PIECES]; // penguin positions by search depth
+	long nodeCount; // search nodes of the last solve
+	long nodeLimit; // greatest number of search nodes of the current solve
+	boolean aborted; // whether the last solve exceeded its node limit
+
+	/**
+	 * fish still to be collected by SQUARE(0)/CIRCLE(1) with best play, set by a successful solve
+	 */
+	int[] gains = new int[2];
+
+	/**
+	 * best play of the player to move, set by a successful solve; -1, -1 if that player cannot move
+	 */
+	int bestSrcPos, bestDestPos;
+
+	public PPEndgameSolver() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param cacheSize - number of memoized group values, rounded down to a power of 2
+	 */
+	public PPEndgameSolver(int cacheSize) {
+		cacheSize = Integer.highestOneBit(Math.max(cacheSize, 1));
+		emptyKeys = new long[cacheSize];
+		pieceKeys = new int[cacheSize];
+		values = new int[cacheSize];
+		indexMask = cacheSize - 1;
+	}
+
+	/**
+	 * Solve the given state if its regions are partitioned between the players, no group of penguins has more than maxRegionSize
+	 * empty positions, and the solve takes at most maxNodes search nodes.
+	 * @param state - state to solve
+	 * @return whether the state was solved, setting gains, bestSrcPos, and bestDestPos
+	 */
+	public boolean solve(PPState state) {
+		return solve(state, maxNodes);
+	}
+	
+	/**
+	 * Solve the given state as solve(PPState) does, within a given number of search nodes.  Groups solved before the solve is 
+	 * abandoned remain memoized, so a later solve of a following state may succeed.
+	 * @param state - state to solve
+	 * @param nodeLimit - greatest number of search nodes
+	 * @return whether the state was solved, setting gains, bestSrcPos, and bestDestPos
+	 */
+	public boolean solve(PPState state, long nodeLimit) {
+		this.state = state;
+		this.nodeLimit = nodeLimit;
+		nodeCount = 0;
+		aborted = false;
+		long empty = ~state.occupiedBits;
+		long squarePieces = state.pieceBits[0], circlePieces = state.pieceBits[1];
+		if (!state.bitboards || state.turnsTaken < PPState.TOTAL_PIECES)
+			return false;
+
+		// Every region adjacent to penguins must be adjacent to only one player's penguins
+		long remaining = empty & state.adjacentPositions(squarePieces | circlePieces);
+		while (remaining != 0) {
+			long region = grow(remaining & -remaining, empty);
+			remaining &= ~region;
+			long neighbors = state.adjacentPositions(region);
+			if ((neighbors & squarePieces) != 0 && (neighbors & circlePieces) != 0)
+				return false;
+		}
+		if (cachedGeometry != state.geometry || cachedFishBits[0] != state.fishBits[0] || cachedFishBits[1] != state.fishBits[1] || cachedFishBits[2] != state.fishBits[2])
+			clear(state);
+
+		// Solve each group of penguins that share regions
+		int current = (state.currentPlayer == PPState.SQUARE) ? 0 : 1;
+		bestSrcPos = bestDestPos = -1;
+		for (int player = 0; player < 2; player++) {
+			gains[player] = 0;
+			long pieces = state.pieceBits[player];
+			while (pieces != 0) {
+				long group = grow(pieces & -pieces, empty | pieces);
+				long groupPieces = group & pieces, groupEmpty = group & empty;
+				pieces &= ~groupPieces;
+				if (groupEmpty == 0)
+					continue;
+				if (Long.bitCount(groupEmpty) > maxRegionSize)
+					return false;
+				int numPieces = setPieces(piecesAt[0], groupPieces);
+				int value = groupValue(groupEmpty, numPieces, 0);
+				if (aborted)
+					return false;
+				gains[player] += value;
+				if (player == current && bestDestPos == -1) {
+					findBestMove(groupEmpty, numPieces, value);
+					if (aborted)
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the final score margin (own score less opponent score) of the player to move in the last solved state
+	 * @param state - the last solved state
+	 */
+	public int finalMargin(PPState state) {
+		int margin = state.score[0] + gains[0] - state.score[1] - gains[1];
+		return (state.currentPlayer == PPState.SQUARE) ? margin : -margin;
+	}
+
+	/**
+	 * Remove all memoized group values, e.g. when solving a state of a new board.
+	 * @param state - a state of the board whose groups will be memoized
+	 */
+	public void clear(PPState state) {
+		if (!state.bitboards)
+			throw new IllegalArgumentException("Endgame solver needs a board of at most " + Long.SIZE + " positions");
+		this.state = state;
+		Arrays.fill(pieceKeys, 0); // every group has a penguin, so no entry matches
+		cachedGeometry = state.geometry;
+		System.arraycopy(state.fishBits, 0, cachedFishBits, 0, 3);
+		System.arraycopy(state.initGrid, 0, fish, 0, state.numPos);
+	}
+
+	/**
+	 * @param seed - positions to grow from
+	 * @param within - positions that may be added
+	 * @return the positions connected to the seed by single steps within the given positions, including the seed
+	 */
+	long grow(long seed, long within) {
+		for (long grown = seed; ; seed = grown) {
+			grown = seed | (state.adjacentPositions(seed) & within);
+			if (grown == seed)
+				return seed;
+		}
+	}
+
+	/**
+	 * Set the given array to the sorted positions of the given pieces.
+	 * @return the number of pieces
+	 */
+	static int setPieces(int[] positions, long pieces) {
+		int n = 0;
+		for (; pieces != 0; pieces &= pieces - 1)
+			positions[n++] = Long.numberOfTrailingZeros(pieces);
+		return n;
+	}
+
+	/**
+	 * @return the sorted penguin positions, each offset by one, in 7-bit fields
+	 */
+	static int packPieces(int[] positions, int numPieces) {
+		int key = 0;
+		for (int i = 0; i < numPieces; i++)
+			key = (key << 7) | (positions[i] + 1);
+		return key;
+	}
+
+	/**
+	 * @param empty - empty positions of a group
+	 * @param numPieces - number of penguins of the group, whose sorted positions are piecesAt[depth]
+	 * @param depth - search depth
+	 * @return the greatest fish sum that the penguins can collect from the empty positions, or 0 if the solve is aborted
+	 */
+	int groupValue(long empty, int numPieces, int depth) {
+		int[] pieces = piecesAt[depth];
+		long pieceBits = 0;
+		for (int i = 0; i < numPieces; i++)
+			pieceBits |= 1L << pieces[i];
+		empty = grow(state.adjacentPositions(pieceBits) & empty, empty); // unreachable positions do not matter
+		if (empty == 0)
+			return 0;
+		if (++nodeCount > nodeLimit) {
+			aborted = true;
+			return 0;
+		}
+		int pieceKey = packPieces(pieces, numPieces);
+		long mix = (empty * 0x9E3779B97F4A7C15L) ^ (pieceKey * 0xC2B2AE3D27D4EB4FL);
+		int index = (int) (mix ^ (mix >>> 29)) & indexMask;
+		if (emptyKeys[index] == empty && pieceKeys[index] == pieceKey)
+			return values[index];
+
+		int bound = fishSum(empty);
+		int best = 0;
+		int[] childPieces = piecesAt[depth + 1];
+		for (int i = 0; i < numPieces && best < bound; i++) {
+			for (long moves = state.queenMoves(1L << pieces[i], empty); moves != 0 && best < bound; moves &= moves - 1) {
+				int destPos = Long.numberOfTrailingZeros(moves);
+				movePiece(pieces, numPieces, i, destPos, childPieces);
+				int value = fish[destPos] + groupValue(empty & ~(1L << destPos), numPieces, depth + 1);
+				if (aborted)
+					return 0;
+				if (value > best)
+					best = value;
+			}
+		}
+		emptyKeys[index] = empty;
+		pieceKeys[index] = pieceKey;
+		values[index] = best;
+		return best;
+	}
+
+	/**
+	 * Set bestSrcPos and bestDestPos to the first move of a sequence attaining the value of a group.
+	 */
+	void findBestMove(long empty, int numPieces, int value) {
+		int[] pieces = piecesAt[0];
+		for (int i = 0; i < numPieces; i++)
+			for (long moves = state.queenMoves(1L << pieces[i], empty); moves != 0; moves &= moves - 1) {
+				int destPos = Long.numberOfTrailingZeros(moves);
+				movePiece(pieces, numPieces, i, destPos, piecesAt[1]);
+				if (fish[destPos] + groupValue(empty & ~(1L << destPos), numPieces, 1) == value) {
+					bestSrcPos = pieces[i];
+					bestDestPos = destPos;
+					return;
+				}
+			}
+	}
+
+	/**
+	 * Copy the sorted positions of pieces to childPieces with piece i moved to destPos, keeping them sorted.
+	 */
+	static void movePiece(int[] pieces, int numPieces, int i, int destPos, int[] childPieces) {
+		int j = 0;
+		for (int k = 0; k < numPieces; k++)
+			if (k != i)
+				childPieces[j++] = pieces[k];
+		for (; j > 0 && childPieces[j - 1] > destPos; j--)
+			childPieces[j] = childPieces[j - 1];
+		childPieces[j] = destPos;
+	}
+
+	int fishSum(long positions) {
+		int sum = 0;
+		for (; positions != 0; positions &= positions - 1)
+			sum += fish[Long.numberOfTrailingZeros(positions)];
+		return sum;
+	}
+
+	/**
+	 * Check solver results against exhaustive negamax search at partitioned states of random games, and compare solver time with
+	 * the time of a depth-limited search of the same states.
+	 * Usage: java PPEndgameSolver [numGames [maxExhaustiveSize [searchDepth]]]
+	 */
+	public static void main(String[] args) {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		int maxExhaustiveSize = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+		int searchDepth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		PPEndgameSolver solver = new PPEndgameSolver();
+		Random random = new Random(0);
+		long unsolved = 0, solved = 0, checked = 0, mismatches = 0, solverNodes = 0;
+		long unsolvedNanos = 0, solvedNanos = 0, searchNanos = 0, checkedSolverNanos = 0, exhaustiveNanos = 0;
+		for (int game = 0; game < numGames; game++) {
+			PPState state = new PPState();
+			state.init(game);
+			while (!state.gameOver()) {
+				long startNanos = System.nanoTime();
+				boolean isSolved = solver.solve(state);
+				long nanos = System.nanoTime() - startNanos;
+				if (!isSolved) {
+					unsolved++;
+					unsolvedNanos += nanos;
+				}
+				else {
+					solved++;
+					solvedNanos += nanos;
+					solverNodes += solver.nodeCount;
+					int margin = solver.finalMargin(state);
+
+					// Time a depth-limited search
+					PPStateMinimax searcher = new PPStateMinimax(searchDepth);
+					searcher.endgameSolver = null;
+					searcher.copy(state);
+					startNanos = System.nanoTime();
+					searcher.getPlay(Long.MAX_VALUE);
+					searchNanos += System.nanoTime() - startNanos;
+
+					// Check small states against exhaustive search, and that the solver's play keeps the margin
+					long empty = ~state.occupiedBits;
+					long reachable = solver.grow(state.adjacentPositions(state.pieceBits[0] | state.pieceBits[1]) & empty, empty);
+					if (Long.bitCount(reachable) <= maxExhaustiveSize) {
+						checked++;
+						checkedSolverNanos += nanos;
+						searcher = new PPStateMinimax(PPStateMinimax.MAX_SEARCH_DEPTH);
+						searcher.endgameSolver = null;
+						searcher.stats = new PPSearchStats();
+						searcher.copy(state);
+						boolean pass = !state.hasLegalMove(); // search from the other player's turn, since getPlay does not search a pass
+						if (pass)
+							searcher.makeMove(-1, -1);
+						startNanos = System.nanoTime();
+						searcher.getPlay(Long.MAX_VALUE);
+						exhaustiveNanos += System.nanoTime() - startNanos;
+						PPSearchStats stats = searcher.stats;
+						int exhaustiveScore = stats.iterationScore[stats.numIterations - 1];
+						if (pass)
+							exhaustiveScore = -exhaustiveScore;
+						PPState end = new PPState(state);
+						end.score[0] += solver.gains[0];
+						end.score[1] += solver.gains[1];
+						if (exhaustiveScore != PPStateMinimax.terminalScore(end))
+							mismatches++;
+						else if (solver.bestDestPos != -1) {
+							PPState child = new PPState(state);
+							child.makeMove(solver.bestSrcPos, solver.bestDestPos);
+							PPEndgameSolver childSolver = new PPEndgameSolver(1 << 10);
+							if (!childSolver.solve(child) || childSolver.finalMargin(child) != -margin)
+								mismatches++;
+						}
+					}
+				}
+				state.computeLegalMoves();
+				if (state.legalMoveCount == 0)
+					state.makeMove(-1, -1);
+				else {
+					int i = random.nextInt(state.legalMoveCount);
+					state.makeMove(state.legalMoves[0][i], state.legalMoves[1][i]);
+				}
+			}
+		}
+		System.out.printf("%d games: %d partitioned states solved (%d checked exhaustively), %d mismatches\n", numGames, solved, checked, mismatches);
+		System.out.printf("unsolved states: %.1f usec per state to reject\n", unsolvedNanos / 1e3 / Math.max(1, unsolved));
+		System.out.printf("solved states: solver %.1f nodes and %.1f usec per state, depth %d search %.1f usec per state\n",
+				(double) solverNodes / Math.max(1, solved), solvedNanos / 1e3 / Math.max(1, solved), searchDepth, searchNanos / 1e3 / Math.max(1, solved));
+		System.out.printf("checked states: solver %.1f usec per state, exhaustive search %.1f usec per state\n", checkedSolverNanos / 1e3 / Math.max(1, checked),
+				exhaustiveNanos / 1e3 / Math.max(1, checked));
+	}
+}
@@ -0,0 +1,21 @@
+/**
+ * PPEvaluator - a heuristic evaluation of Paper Penguins states, used by PPStateMinimax at its search depth limit (see
+ * PPStateMinimax.setEvaluator).
+ *
+ * Implementations: PPDistanceEval (the territory evaluation of PPState.simpleEval), PPKingDistanceEval, PPMobilityEval,
+ * and PPVoronoiEval.  PPEvaluatorReport compares their cost and playing strength.  Evaluators work on the bitboards of
+ * PPState, so they evaluate boards of at most 64 positions (see PPGeometry).
+ */
+public interface PPEvaluator {
+
+	/**
+	 * @param state - a state where the game is not over
+	 * @return the heuristic value of the state to the player to move, less in magnitude than PPStateMinimax.WIN_SCORE
+	 */
+	int evaluate(PPState state);
+
+	/**
+	 * @return an evaluator equivalent to this one for use by another search thread, or this evaluator if it keeps no state
+	 */
+	PPEvaluator copy();
+}
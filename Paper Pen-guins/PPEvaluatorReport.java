@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PPEvaluatorReport - compares PPEvaluator implementations by cost and by playing strength.  Cost is the mean time of an
+ * evaluation over positions set up as in PPTranspositionBenchmark, after random plies into the movement phase.  Strength is the
+ * game score and Elo difference of PPStateMinimax with each evaluator against PPStateMinimax with the baseline PPDistanceEval,
+ * playing each board seed with both colors (see PPArena) at each given game time.  A cheaper evaluator searches deeper in the
+ * same time, so strength is measured at several time controls.
+ *
+ * Usage: java PPEvaluatorReport [numSeeds [numThreads [gameMillis,...]]]
+ */
+public class PPEvaluatorReport {
+
+	static final String BASELINE = "PPDistanceEval";
+	static final String[] EVALUATORS = {"PPDistanceEval", "PPKingDistanceEval", "PPMobilityEval", "PPVoronoiEval"};
+
+	/**
+	 * @param numPositions - number of positions
+	 * @param randomPlies - number of random plies to each position
+	 * @return positions where the game is not over
+	 */
+	static PPState[] positions(int numPositions, int randomPlies) {
+		ArrayList<PPState> positions = new ArrayList<PPState>();
+		for (long seed = 0; positions.size() < numPositions; seed++) {
+			PPState state = new PPState();
+			PPTranspositionBenchmark.setUpPosition(state, seed, randomPlies);
+			if (!state.gameOver())
+				positions.add(state);
+		}
+		return positions.toArray(new PPState[positions.size()]);
+	}
+
+	static PPEvaluator newEvaluator(String className) throws Exception {
+		return (PPEvaluator) Class.forName(className).getDeclaredConstructor().newInstance();
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numSeeds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		String[] gameMillisList = (args.length > 2 ? args[2] : "2000,10000").split(",");
+
+		// Cost
+		PPState[] states = positions(1000, 20);
+		System.out.printf("evaluation cost over %d positions after 20 random plies\n", states.length);
+		long checksum = 0;
+		for (String className : EVALUATORS) {
+			PPEvaluator evaluator = newEvaluator(className);
+			for (int round = 0; round < 20; round++) // warm up
+				for (PPState state : states)
+					checksum += evaluator.evaluate(state);
+			int rounds = 100;
+			long startNanos = System.nanoTime();
+			for (int round = 0; round < rounds; round++)
+				for (PPState state : states)
+					checksum += evaluator.evaluate(state);
+			System.out.printf("%-20s %8.1f ns/eval\n", className, (double) (System.nanoTime() - startNanos) / ((long) rounds * states.length));
+		}
+		System.out.printf("(checksum %d)\n", checksum);
+
+		// Strength against the baseline
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		for (String millis : gameMillisList) {
+			final long gameMillis = Long.parseLong(millis);
+			System.out.printf("strength against PPStateMinimax/%s, %d seeds x 2 colors, %d ms per player per game\n", BASELINE, numSeeds, gameMillis);
+			for (String className : EVALUATORS) {
+				if (className.equals(BASELINE))
+					continue;
+				final String spec = "PPStateMinimax/" + className, baselineSpec = "PPStateMinimax/" + BASELINE;
+				ArrayList<Future<String>> futures = new ArrayList<Future<String>>();
+				for (int game = 0; game < 2 * numSeeds; game++) {
+					final long seed = game / 2;
+					final boolean square = game % 2 == 0;
+					futures.add(pool.submit(new Callable<String>() {
+						public String call() {
+							return PPArena.playGame(seed, square ? spec : baselineSpec, square ? baselineSpec : spec, gameMillis);
+						}
+					}));
+				}
+				double sumScores = 0;
+				for (Future<String> future : futures)
+					sumScores += PPArena.gameScore(spec, future.get());
+				double mean = sumScores / futures.size();
+				System.out.printf("%-20s score %5.1f of %d (%.3f), Elo %+.0f\n", className, sumScores, futures.size(), mean, PPArena.elo(mean));
+			}
+		}
+		pool.shutdown();
+	}
+}
@@ -0,0 +1,291 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PPGameDatabase - a read-only database of PPGameRecord games, memory-mapped from an append-only record file (baseName.ppg)
+ * and its index (baseName.ppi), both written by PPGameDatabase.Writer.
+ *
+ * Each file begins with a 16-byte header (magic number, version, reserved).  Records follow in the order they were appended,
+ * each: record length (int), board seed (long), first player (byte, 0 for SQUARE), SQUARE and CIRCLE name lengths (unsigned
+ * bytes), termination (byte: PPGameRecord.NORMAL, TIME, ILLEGAL, or ERROR), SQUARE and CIRCLE final scores (short), number
+ * of plays (unsigned short), board size (byte), the UTF-8 names, the packed plays (unsigned short each, see
+ * PPState.packMove), and the decision milliseconds of the plays (int each), all big-endian.  Version 1 files packed plays
+ * with 7-bit positions, and version 2 files have no board size; neither can be read.  The index holds one 16-byte entry per
+ * game: the record offset (long) and the board seed (long).  The writer appends a record before its index entry, so the index
+ * only refers to complete records.
+ *
+ * Game n is read with one index lookup, and games of a seed are found by scanning the index alone.  Games are decoded into
+ * PPGameRecords, which replay them from PPState.init (i.e. from the PaperPenguins board of the size and seed) with
+ * PPState.makeMove.  The record file is mapped in overlapping segments, so it may exceed 2 GB.  A database may be shared by
+ * threads.
+ */
+public class PPGameDatabase {
+
+	/**
+	 * record and index file magic numbers, "PPGR" and "PPGI"
+	 */
+	public static final int RECORD_MAGIC = 0x50504752, INDEX_MAGIC = 0x50504749;
+
+	/**
+	 * file format version
+	 */
+	public static final int VERSION = 3;
+
+	static final int HEADER_BYTES = 16;
+	static final int INDEX_ENTRY_BYTES = 16;
+	static final int RECORD_HEADER_BYTES = 23;
+	static final int MAX_NAME_BYTES = 255;
+	static final int MAX_MOVES = 0xFFFF;
+	static final int MAX_RECORD_BYTES = RECORD_HEADER_BYTES + 2 * MAX_NAME_BYTES + 6 * MAX_MOVES;
+
+	/**
+	 * spacing of the record file segments, each of which is mapped with MAX_RECORD_BYTES more so that it holds every record
+	 * that starts within it
+	 */
+	static final long SEGMENT_BYTES = 1L << 30;
+
+	ByteBuffer index;
+	ByteBuffer[] segments;
+	int numGames;
+
+	/**
+	 * Memory-map a game database.
+	 * @param baseName - file name without the .ppg or .ppi extension
+	 * @return the database
+	 * @throws IOException if the files cannot be read or are not game database files
+	 */
+	public static PPGameDatabase open(String baseName) throws IOException {
+		PPGameDatabase database = new PPGameDatabase();
+		try (FileChannel channel = FileChannel.open(Paths.get(baseName + ".ppi"), StandardOpenOption.READ)) {
+			database.index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		checkHeader(database.index, INDEX_MAGIC, baseName + ".ppi");
+		database.numGames = (database.index.capacity() - HEADER_BYTES) / INDEX_ENTRY_BYTES; // ignore a partly written entry
+		try (FileChannel channel = FileChannel.open(Paths.get(baseName + ".ppg"), StandardOpenOption.READ)) {
+			long size = channel.size();
+			database.segments = new ByteBuffer[(int) ((size + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+			for (int i = 0; i < database.segments.length; i++) {
+				long start = i * SEGMENT_BYTES;
+				database.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_BYTES + MAX_RECORD_BYTES, size - start));
+			}
+			if (database.segments.length == 0)
+				throw new IOException("Empty game record file " + baseName + ".ppg");
+			checkHeader(database.segments[0], RECORD_MAGIC, baseName + ".ppg");
+			if (database.numGames > 0 && database.offset(database.numGames - 1) >= size)
+				throw new IOException("Game index " + baseName + ".ppi refers past the end of the record file");
+		}
+		return database;
+	}
+
+	static void checkHeader(ByteBuffer buffer, int magic, String fileName) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != magic || buffer.getInt(4) != VERSION)
+			throw new IOException("Not a version " + VERSION + " game database file: " + fileName);
+	}
+
+	/**
+	 * @return the number of games
+	 */
+	public int size() {
+		return numGames;
+	}
+
+	/**
+	 * @param game - game number, from 0
+	 * @return the offset of the game record in the record file
+	 */
+	long offset(int game) {
+		return index.getLong(HEADER_BYTES + game * INDEX_ENTRY_BYTES);
+	}
+
+	/**
+	 * @param game - game number, from 0
+	 * @return the board seed of the game
+	 */
+	public long seed(int game) {
+		return index.getLong(HEADER_BYTES + game * INDEX_ENTRY_BYTES + 8);
+	}
+
+	/**
+	 * @param seed - board seed
+	 * @return the numbers of the games of the seed, in increasing order
+	 */
+	public int[] findSeed(long seed) {
+		int[] games = new int[16];
+		int count = 0;
+		for (int game = 0; game < numGames; game++)
+			if (index.getLong(HEADER_BYTES + game * INDEX_ENTRY_BYTES + 8) == seed) {
+				if (count == games.length)
+					games = Arrays.copyOf(games, 2 * count);
+				games[count++] = game;
+			}
+		return Arrays.copyOf(games, count);
+	}
+
+	/**
+	 * @param game - game number, from 0
+	 * @return the number of plays of the game
+	 */
+	public int numMoves(int game) {
+		long offset = offset(game);
+		return segments[(int) (offset / SEGMENT_BYTES)].getChar((int) (offset % SEGMENT_BYTES) + 20);
+	}
+
+	/**
+	 * @param game - game number, from 0
+	 * @return a new record of the game
+	 */
+	public PPGameRecord get(int game) {
+		long offset = offset(game);
+		ByteBuffer segment = segments[(int) (offset / SEGMENT_BYTES)];
+		int p = (int) (offset % SEGMENT_BYTES);
+		PPGameRecord record = new PPGameRecord(segment.get(p + 22) & 0xFF, segment.getLong(p + 4),
+				segment.get(p + 12) == 0 ? PPState.SQUARE : PPState.CIRCLE);
+		int squareNameBytes = segment.get(p + 13) & 0xFF, circleNameBytes = segment.get(p + 14) & 0xFF;
+		record.setTermination(segment.get(p + 15));
+		record.setScore(segment.getShort(p + 16), segment.getShort(p + 18));
+		int numMoves = segment.getChar(p + 20);
+		p += RECORD_HEADER_BYTES;
+		record.setNames(string(segment, p, squareNameBytes), string(segment, p + squareNameBytes, circleNameBytes));
+		p += squareNameBytes + circleNameBytes;
+		if (record.moves.length < numMoves) {
+			record.moves = new int[numMoves];
+			record.millis = new int[numMoves];
+		}
+		for (int ply = 0; ply < numMoves; ply++) {
+			record.moves[ply] = segment.getChar(p + 2 * ply);
+			record.millis[ply] = segment.getInt(p + 2 * numMoves + 4 * ply);
+		}
+		record.numMoves = numMoves;
+		return record;
+	}
+
+	static String string(ByteBuffer buffer, int position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = buffer.get(position + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * PPGameDatabase.Writer - appends games to a game database, creating its files if needed.  Records and index entries are
+	 * buffered and written by flush and close.  A database must have at most one writer at a time; readers opened meanwhile see
+	 * the games flushed before they were opened.
+	 */
+	public static class Writer implements Closeable {
+
+		/**
+		 * capacity of the record buffer
+		 */
+		static final int BUFFER_BYTES = 1 << 16;
+
+		FileChannel recordChannel, indexChannel;
+		ByteBuffer records = ByteBuffer.allocate(BUFFER_BYTES), entries = ByteBuffer.allocate(BUFFER_BYTES);
+		long recordFileSize;
+
+		/**
+		 * @param baseName - file name without the .ppg or .ppi extension
+		 * @throws IOException if the files cannot be opened or are not game database files
+		 */
+		public Writer(String baseName) throws IOException {
+			recordChannel = openAppend(baseName + ".ppg", RECORD_MAGIC);
+			try {
+				indexChannel = openAppend(baseName + ".ppi", INDEX_MAGIC);
+			}
+			catch (IOException e) {
+				recordChannel.close();
+				throw e;
+			}
+			recordFileSize = recordChannel.size();
+			long indexSize = indexChannel.size();
+			indexChannel.position(indexSize - (indexSize - HEADER_BYTES) % INDEX_ENTRY_BYTES); // overwrite a partly written entry
+		}
+
+		static FileChannel openAppend(String fileName, int magic) throws IOException {
+			FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			try {
+				if (channel.size() == 0) {
+					header.putInt(magic).putInt(VERSION).putLong(0).flip();
+					while (header.hasRemaining())
+						channel.write(header);
+				}
+				else {
+					while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+						;
+					checkHeader(header, magic, fileName);
+				}
+				channel.position(channel.size());
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			return channel;
+		}
+
+		/**
+		 * Append a game.  Player names are truncated to MAX_NAME_BYTES bytes.
+		 * @param record - game record of at most MAX_MOVES plays
+		 * @throws IOException if the record cannot be written
+		 */
+		public void append(PPGameRecord record) throws IOException {
+			if (record.numMoves > MAX_MOVES)
+				throw new IllegalArgumentException("Game of " + record.numMoves + " plays is too long to record");
+			byte[] squareName = nameBytes(record.names[0]), circleName = nameBytes(record.names[1]);
+			int recordBytes = RECORD_HEADER_BYTES + squareName.length + circleName.length + 6 * record.numMoves;
+			if (records.remaining() < recordBytes || entries.remaining() < INDEX_ENTRY_BYTES)
+				flush();
+			ByteBuffer out = (recordBytes <= records.capacity()) ? records : ByteBuffer.allocate(recordBytes);
+			out.putInt(recordBytes).putLong(record.seed).put((byte) (record.firstPlayer == PPState.SQUARE ? 0 : 1));
+			out.put((byte) squareName.length).put((byte) circleName.length).put((byte) record.termination);
+			out.putShort((short) record.score[0]).putShort((short) record.score[1]).putChar((char) record.numMoves);
+			out.put((byte) record.size);
+			out.put(squareName).put(circleName);
+			for (int ply = 0; ply < record.numMoves; ply++)
+				out.putChar((char) record.moves[ply]);
+			for (int ply = 0; ply < record.numMoves; ply++)
+				out.putInt(record.millis[ply]);
+			if (out != records)
+				write(out, recordChannel);
+			entries.putLong(recordFileSize).putLong(record.seed);
+			recordFileSize += recordBytes;
+		}
+
+		static byte[] nameBytes(String name) {
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			return (bytes.length <= MAX_NAME_BYTES) ? bytes : Arrays.copyOf(bytes, MAX_NAME_BYTES); // may split a character
+		}
+
+		static void write(ByteBuffer buffer, FileChannel channel) throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		/**
+		 * Write buffered records, then their index entries.
+		 * @throws IOException if they cannot be written
+		 */
+		public void flush() throws IOException {
+			write(records, recordChannel);
+			write(entries, indexChannel);
+		}
+
+		public void close() throws IOException {
+			try {
+				flush();
+			}
+			finally {
+				recordChannel.close();
+				indexChannel.close();
+			}
+		}
+	}
+}
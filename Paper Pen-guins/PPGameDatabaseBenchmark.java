@@ -0,0 +1,103 @@
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PPGameDatabaseBenchmark - appends random games to a new PPGameDatabase, one in ten of them ended early as lost on time,
+ * reopens it, checks every game against the appended record and its replayed final score, and times appending, reading game n, finding the games of a seed, and replaying a game.
+ * The database files are deleted afterwards.
+ *
+ * Usage: java PPGameDatabaseBenchmark [numGames [baseName]]
+ */
+public class PPGameDatabaseBenchmark {
+
+	/**
+	 * @param seed - board seed
+	 * @param playSeed - random play seed
+	 * @return a random game of the seed
+	 */
+	static PPGameRecord randomGame(long seed, long playSeed) {
+		Random random = new Random(playSeed);
+		PPGameRecord record = new PPGameRecord(seed, random.nextBoolean() ? PPState.SQUARE : PPState.CIRCLE);
+		record.setNames("random", "random " + playSeed % 10);
+		PPState state = record.start();
+		int[] legalMoves = new int[PPState.MAX_LEGAL_MOVES];
+		int timePly = (random.nextInt(10) == 0) ? random.nextInt(2 * PPState.NUM_POS) : -1; // ply at which to lose on time, if any
+		while (!state.gameOver()) {
+			if (state.turnsTaken == timePly) {
+				record.setTermination(PPGameRecord.TIME);
+				break;
+			}
+			int n = state.generateMoves(legalMoves, 0);
+			int move = (n == 0) ? PPState.PASS_MOVE : legalMoves[random.nextInt(n)];
+			record.add(PPState.moveSrcPos(move), PPState.moveDestPos(move), random.nextInt(1000));
+			state.makeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+		}
+		record.setScore(state.score[0], state.score[1]);
+		return record;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		String baseName = args.length > 1 ? args[1] : new File(System.getProperty("java.io.tmpdir"), "ppgames" + System.nanoTime()).getPath();
+		int numSeeds = Math.max(1, numGames / 10); // each seed is played about 10 times
+		PPGameRecord[] games = new PPGameRecord[numGames];
+		for (int i = 0; i < numGames; i++)
+			games[i] = randomGame(i % numSeeds, i);
+
+		// Append
+		long startNanos = System.nanoTime();
+		try (PPGameDatabase.Writer writer = new PPGameDatabase.Writer(baseName)) {
+			for (PPGameRecord game : games)
+				writer.append(game);
+		}
+		double appendSeconds = (System.nanoTime() - startNanos) / 1e9;
+		long bytes = new File(baseName + ".ppg").length() + new File(baseName + ".ppi").length();
+		System.out.printf("appended %d games in %.2f sec (%.0f games/s), %.1f bytes per game with index\n", numGames, appendSeconds,
+				numGames / appendSeconds, (double) bytes / numGames);
+
+		// Check
+		PPGameDatabase database = PPGameDatabase.open(baseName);
+		int mismatches = 0;
+		for (int i = 0; i < numGames; i++) {
+			PPGameRecord expected = games[i], actual = database.get(i);
+			boolean same = actual.seed == expected.seed && actual.firstPlayer == expected.firstPlayer && actual.numMoves == expected.numMoves
+					&& Arrays.equals(actual.names, expected.names) && Arrays.equals(actual.score, expected.score) && actual.termination == expected.termination
+					&& Arrays.equals(Arrays.copyOf(actual.moves, actual.numMoves), Arrays.copyOf(expected.moves, expected.numMoves))
+					&& Arrays.equals(Arrays.copyOf(actual.millis, actual.numMoves), Arrays.copyOf(expected.millis, expected.numMoves))
+					&& Arrays.equals(actual.replay(actual.numMoves).score, actual.score);
+			if (!same)
+				mismatches++;
+		}
+		System.out.printf("%d games, %d mismatches\n", database.size(), mismatches);
+
+		// Time reads
+		Random random = new Random(0);
+		int reads = Math.min(numGames, 100000);
+		long checksum = 0;
+		for (int pass = 0; pass < 2; pass++) { // the first pass warms up
+			startNanos = System.nanoTime();
+			for (int i = 0; i < reads; i++)
+				checksum += database.get(random.nextInt(numGames)).numMoves;
+			double getNanos = (double) (System.nanoTime() - startNanos) / reads;
+			int finds = 100;
+			startNanos = System.nanoTime();
+			for (int i = 0; i < finds; i++)
+				checksum += database.findSeed(random.nextInt(numSeeds)).length;
+			double findMicros = (System.nanoTime() - startNanos) / 1e3 / finds;
+			startNanos = System.nanoTime();
+			for (int i = 0; i < reads; i++) {
+				PPGameRecord game = database.get(random.nextInt(numGames));
+				checksum += game.replay(game.numMoves).score[0];
+			}
+			double replayNanos = (double) (System.nanoTime() - startNanos) / reads;
+			if (pass == 1)
+				System.out.printf("read game n %.0f ns, find games of a seed %.0f us, read and replay a game %.0f ns (checksum %d)\n", getNanos,
+						findMicros, replayNanos, checksum);
+		}
+		if (args.length < 2) {
+			new File(baseName + ".ppg").delete();
+			new File(baseName + ".ppi").delete();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * PPGameRecord - a compact record of a game: the board size and PaperPenguins board seed, the first player, the player
+ * names, the packed plays (see PPState.packMove) with the milliseconds taken to decide each, how the game ended, and the
+ * final score.  start() recreates the first state, from which the plays replay the game.  A game ended by time, an illegal
+ * play, or an error is lost by the player to move after the recorded plays, and its final score is the score when it
+ * ended.  PPSVGRenderer exports a record as an animated SVG, an HTML pager, or a ZIP archive of frames, and PPGameDatabase
+ * stores records.
+ */
+public class PPGameRecord {
+
+	/**
+	 * game terminations: play to the end of the game, the player to move ran out of time, the player to move made an illegal
+	 * play (which is not recorded), or a player's program failed with an exception (the player to move if it failed to play)
+	 */
+	public static final int NORMAL = 0, TIME = 1, ILLEGAL = 2, ERROR = 3;
+
+	int size;
+	long seed;
+	int firstPlayer;
+	String[] names = {"", ""};
+	int[] moves = new int[2 * PPState.NUM_POS];
+	int[] millis = new int[moves.length];
+	int numMoves;
+	int[] score = new int[2];
+	int termination = NORMAL;
+
+	/**
+	 * @param seed - PaperPenguins board seed
+	 * @param firstPlayer - PPState.SQUARE or PPState.CIRCLE
+	 */
+	public PPGameRecord(long seed, int firstPlayer) {
+		this(PPState.SIZE, seed, firstPlayer);
+	}
+
+	/**
+	 * @param size - board width and height
+	 * @param seed - PaperPenguins board seed
+	 * @param firstPlayer - PPState.SQUARE or PPState.CIRCLE
+	 * @throws IllegalArgumentException if there is no board of the given size (see PPGeometry.forSize)
+	 */
+	public PPGameRecord(int size, long seed, int firstPlayer) {
+		PPGeometry.forSize(size);
+		this.size = size;
+		this.seed = seed;
+		this.firstPlayer = firstPlayer;
+	}
+
+	/**
+	 * @return the board width and height
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Record a play.
+	 * @param srcPos - source position, or -1 for a placement or pass
+	 * @param destPos - destination position, or -1 for a pass
+	 */
+	public void add(int srcPos, int destPos) {
+		add(srcPos, destPos, 0);
+	}
+
+	/**
+	 * Record a play.
+	 * @param srcPos - source position, or -1 for a placement or pass
+	 * @param destPos - destination position, or -1 for a pass
+	 * @param playMillis - milliseconds taken to decide the play
+	 */
+	public void add(int srcPos, int destPos, int playMillis) {
+		if (numMoves == moves.length) {
+			moves = Arrays.copyOf(moves, 2 * moves.length);
+			millis = Arrays.copyOf(millis, moves.length);
+		}
+		millis[numMoves] = playMillis;
+		moves[numMoves++] = PPState.packMove(srcPos, destPos);
+	}
+
+	/**
+	 * @param squareName - name of the SQUARE player
+	 * @param circleName - name of the CIRCLE player
+	 */
+	public void setNames(String squareName, String circleName) {
+		names[0] = squareName;
+		names[1] = circleName;
+	}
+
+	/**
+	 * @param player - PPState.SQUARE or PPState.CIRCLE
+	 * @return the name of the player
+	 */
+	public String getName(int player) {
+		return names[player == PPState.SQUARE ? 0 : 1];
+	}
+
+	/**
+	 * @param squareScore - final SQUARE score
+	 * @param circleScore - final CIRCLE score
+	 */
+	public void setScore(int squareScore, int circleScore) {
+		score[0] = squareScore;
+		score[1] = circleScore;
+	}
+
+	/**
+	 * @param termination - NORMAL, TIME, ILLEGAL, or ERROR
+	 */
+	public void setTermination(int termination) {
+		this.termination = termination;
+	}
+
+	/**
+	 * @return NORMAL, TIME, ILLEGAL, or ERROR
+	 */
+	public int getTermination() {
+		return termination;
+	}
+
+	/**
+	 * @return the final scores of SQUARE and CIRCLE
+	 */
+	public int[] getScore() {
+		return score.clone();
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getFirstPlayer() {
+		return firstPlayer;
+	}
+
+	public int getNumMoves() {
+		return numMoves;
+	}
+
+	/**
+	 * @param ply - index of a play
+	 * @return the packed play
+	 */
+	public int getMove(int ply) {
+		return moves[ply];
+	}
+
+	/**
+	 * @param ply - index of a play
+	 * @return the milliseconds taken to decide the play
+	 */
+	public int getMillis(int ply) {
+		return millis[ply];
+	}
+
+	/**
+	 * @return a new first state of the game
+	 */
+	public PPState start() {
+		PPState state = new PPState(PPGeometry.forSize(size));
+		state.init(seed);
+		state.setCurrentPlayer(firstPlayer);
+		return state;
+	}
+
+	/**
+	 * @param plies - number of plays to make, at most getNumMoves()
+	 * @return a new state of the game after the given number of plays
+	 */
+	public PPState replay(int plies) {
+		PPState state = start();
+		for (int ply = 0; ply < plies; ply++)
+			state.makeMove(PPState.moveSrcPos(moves[ply]), PPState.moveDestPos(moves[ply]));
+		return state;
+	}
+
+	/**
+	 * @return the seed, the first player, and the plays, e.g. "seed 3, X first: c2, d4, ..."
+	 */
+	public String toString() {
+		PPState state = start();
+		StringBuilder sb = new StringBuilder();
+		sb.append("seed ").append(seed).append(", ").append(firstPlayer == PPState.SQUARE ? PPState.SQUARE_CHAR : PPState.CIRCLE_CHAR).append(" first:");
+		for (int ply = 0; ply < numMoves; ply++) {
+			int srcPos = PPState.moveSrcPos(moves[ply]), destPos = PPState.moveDestPos(moves[ply]);
+			sb.append(ply == 0 ? " " : ", ").append(state.moveToString(srcPos, destPos));
+			state.makeMove(srcPos, destPos);
+		}
+		return sb.toString();
+	}
+}
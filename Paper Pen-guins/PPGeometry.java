@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * PPGeometry - the lines of play and Zobrist keys of a square Paper Penguins board of one size, precomputed once per size and
+ * shared by all PPState objects of that size.  Positions are in zero-based row-major form as in PPState, i.e. for row r and
+ * column c on a size-by-size board, the position p is (r * size + c).
+ *
+ * For every size, lines[pos] lists the lines of play from pos, each ordered from the nearest position outward.  For boards of
+ * at most 64 positions, the same geometry is also tabulated as bitboards (bit p for position p): rays, one-step neighbors, and
+ * the bit rotation and wrap mask of a step in each direction.  PPState plays boards with bitboards and walks the lines on
+ * larger boards.
+ *
+ * Tables are built by forSize(size) once per size and are never modified afterward, so geometries may be shared by threads.
+ */
+public class PPGeometry {
+
+	/**
+	 * the greatest board size, whose positions plus one fit the 8-bit fields of PPState.packMove
+	 */
+	public static final int MAX_SIZE = 15;
+
+	/**
+	 * row and column steps of the eight directions of play, indexed by direction
+	 */
+	static final int[] dRows = {0, -1, -1, -1, 0, 1, 1, 1};
+	static final int[] dCols = {1, 1, 0, -1, -1, -1, 0, 1};
+
+	static final HashMap<Integer, PPGeometry> geometries = new HashMap<Integer, PPGeometry>();
+
+	/**
+	 * board width and height, and number of positions
+	 */
+	final int size, numPos;
+
+	/**
+	 * lines[pos] - the non-empty lines of play from pos, each ordered from the nearest position outward
+	 */
+	final int[][][] lines;
+
+	/**
+	 * the maximum number of legal moves of a piece, and per turn (placements included) for NUM_PLAYER_PIECES pieces
+	 */
+	final int maxMovesPerPiece, maxLegalMoves;
+
+	/**
+	 * the greatest number of plies that can remain in any game, counting passes
+	 */
+	final int maxGamePlies;
+
+	// Zobrist keys: zobrist[pos][contents] for contents CIRCLE piece (0), SQUARE piece (1), BLOCKED after a CIRCLE visit (2), 
+	// BLOCKED after a SQUARE visit (3), and 1, 2, or 3 fish (3 + fish).  Blocked positions are keyed by who scored them, so that 
+	// equal hashes imply equal scores.
+	final long[][] zobrist;
+	final long zobristCircleToPlay;
+
+	/**
+	 * whether the board has at most 64 positions, so that a long holds one bit per position
+	 */
+	final boolean bitboards;
+
+	// Bitboard tables, or null for boards of more than 64 positions
+	final long[][] rays; // rays[dir][pos] - all positions along direction dir from pos (excluding pos)
+	final long[] adjacent; // positions one queen step away from pos
+	final int[] dirShifts; // bit rotation for one step in each direction
+	final long[] dirAvoidWrap; // positions that can be reached by one step in each direction
+
+	/**
+	 * @param size - board width and height
+	 */
+	PPGeometry(int size) {
+		if (size < 1 || size > MAX_SIZE)
+			throw new IllegalArgumentException("Invalid board size " + size);
+		this.size = size;
+		numPos = size * size;
+		maxGamePlies = 2 * numPos;
+
+		// Lines of play from each position
+		lines = new int[numPos][][];
+		int maxMoves = 0;
+		for (int pos = 0; pos < numPos; pos++) {
+			ArrayList<int[]> posLines = new ArrayList<int[]>();
+			int moves = 0;
+			for (int dir = 0; dir < 8; dir++) {
+				int length = lineLength(pos, dir);
+				if (length == 0)
+					continue;
+				int[] line = new int[length];
+				for (int k = 0; k < length; k++)
+					line[k] = (pos / size + (k + 1) * dRows[dir]) * size + pos % size + (k + 1) * dCols[dir];
+				posLines.add(line);
+				moves += length;
+			}
+			lines[pos] = posLines.toArray(new int[posLines.size()][]);
+			maxMoves = Math.max(maxMoves, moves);
+		}
+		maxMovesPerPiece = maxMoves;
+		maxLegalMoves = Math.max(PPState.NUM_PLAYER_PIECES * maxMovesPerPiece, numPos);
+
+		// Generate Zobrist keys from a fixed seed
+		Random zobristRandom = new Random(0x5eed);
+		zobrist = new long[numPos][7];
+		for (int pos = 0; pos < numPos; pos++)
+			for (int i = 0; i < zobrist[pos].length; i++)
+				zobrist[pos][i] = zobristRandom.nextLong();
+		zobristCircleToPlay = zobristRandom.nextLong();
+
+		// Bitboard rays, adjacent positions, and one-step shifts for each direction.  On boards of fewer than 64 positions, a 
+		// rotation only wraps through the unused high bits, which the wrap masks exclude.
+		bitboards = numPos <= Long.SIZE;
+		if (!bitboards) {
+			rays = null;
+			adjacent = null;
+			dirShifts = null;
+			dirAvoidWrap = null;
+			return;
+		}
+		rays = new long[8][numPos];
+		adjacent = new long[numPos];
+		dirShifts = new int[8];
+		dirAvoidWrap = new long[8];
+		for (int dir = 0; dir < 8; dir++) {
+			dirShifts[dir] = dRows[dir] * size + dCols[dir];
+			for (int pos = 0; pos < numPos; pos++) {
+				int row = pos / size + dRows[dir];
+				int col = pos % size + dCols[dir];
+				if (row >= 0 && row < size && col >= 0 && col < size)
+					adjacent[pos] |= 1L << (row * size + col);
+				while (row >= 0 && row < size && col >= 0 && col < size) {
+					rays[dir][pos] |= 1L << (row * size + col);
+					dirAvoidWrap[dir] |= 1L << (row * size + col);
+					row += dRows[dir];
+					col += dCols[dir];
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param size - board width and height
+	 * @return the shared geometry of boards of the given size
+	 */
+	public static synchronized PPGeometry forSize(int size) {
+		PPGeometry geometry = geometries.get(size);
+		if (geometry == null) {
+			geometry = new PPGeometry(size);
+			geometries.put(size, geometry);
+		}
+		return geometry;
+	}
+
+	/**
+	 * @param pos - board position
+	 * @param dir - direction index into dRows/dCols
+	 * @return the number of positions along direction dir from pos to the edge of the board
+	 */
+	int lineLength(int pos, int dir) {
+		int row = pos / size, col = pos % size;
+		int rowSteps = (dRows[dir] > 0) ? size - 1 - row : (dRows[dir] < 0) ? row : Integer.MAX_VALUE;
+		int colSteps = (dCols[dir] > 0) ? size - 1 - col : (dCols[dir] < 0) ? col : Integer.MAX_VALUE;
+		return Math.min(rowSteps, colSteps);
+	}
+
+	/**
+	 * @return the board width and height
+	 */
+	public int getSize() {
+		return size;
+	}
+}
@@ -0,0 +1,28 @@
+/**
+ * PPKingDistanceEval - a territory evaluation like PPDistanceEval, but with distances measured in single (king) steps through
+ * empty positions rather than in queen moves.  A king step of a whole frontier takes a few shifts, where a queen move takes a
+ * fill in each of eight directions, so each layer is cheaper, though distances take more layers to resolve.
+ */
+public class PPKingDistanceEval implements PPEvaluator {
+
+	public int evaluate(PPState state) {
+		long empty = ~state.occupiedBits;
+		long squareReached = state.pieceBits[0], circleReached = state.pieceBits[1];
+		long squareFrontier = squareReached, circleFrontier = circleReached;
+		long squareCloser = 0, circleCloser = 0;
+		while ((squareFrontier | circleFrontier) != 0) {
+			squareFrontier = state.adjacentPositions(squareFrontier) & empty & ~squareReached;
+			circleFrontier = state.adjacentPositions(circleFrontier) & empty & ~circleReached;
+			squareCloser |= squareFrontier & ~circleReached & ~circleFrontier;
+			circleCloser |= circleFrontier & ~squareReached & ~squareFrontier;
+			squareReached |= squareFrontier;
+			circleReached |= circleFrontier;
+		}
+		int count = state.score[0] - state.score[1] + state.fishSum(squareCloser) - state.fishSum(circleCloser);
+		return (state.currentPlayer == PPState.SQUARE) ? count : -count;
+	}
+
+	public PPEvaluator copy() {
+		return this;
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ * PPMobilityEval - the PPDistanceEval territory evaluation plus a fraction of the difference between the players' numbers of
+ * legal moves, so that search avoids penguins being hemmed in before their territory is lost.
+ */
+public class PPMobilityEval implements PPEvaluator {
+
+	/**
+	 * the default number of legal moves worth one fish
+	 */
+	public static final int DEFAULT_MOVES_PER_FISH = 4;
+
+	int movesPerFish;
+
+	public PPMobilityEval() {
+		this(DEFAULT_MOVES_PER_FISH);
+	}
+
+	/**
+	 * @param movesPerFish - number of legal moves worth one fish
+	 */
+	public PPMobilityEval(int movesPerFish) {
+		this.movesPerFish = movesPerFish;
+	}
+
+	public int evaluate(PPState state) {
+		long empty = ~state.occupiedBits;
+		int count = state.score[0] - state.score[1] + state.territory(state.pieceBits[0], state.pieceBits[1], empty, 0)
+				+ (mobility(state, state.pieceBits[0], empty) - mobility(state, state.pieceBits[1], empty)) / movesPerFish;
+		return (state.currentPlayer == PPState.SQUARE) ? count : -count;
+	}
+
+	/**
+	 * @param state - state of the board
+	 * @param pieces - bitboard of piece positions
+	 * @param empty - bitboard of empty positions
+	 * @return the number of moves of the given pieces
+	 */
+	static int mobility(PPState state, long pieces, long empty) {
+		int moves = 0;
+		for (; pieces != 0; pieces &= pieces - 1)
+			moves += Long.bitCount(state.queenMoves(pieces & -pieces, empty));
+		return moves;
+	}
+
+	public PPEvaluator copy() {
+		return this;
+	}
+}
@@ -0,0 +1,41 @@
+/**
+ * PPMoveOrderingBenchmark - compares iterative-deepening negamax search with generated move order, with generated move order
+ * after the transposition table move, and with full move ordering (transposition table move, killer moves, history, destination
+ * fish), reporting search nodes, time, and the rate at which the first move searched caused a cutoff.  Node reductions are
+ * relative to generated move order.
+ *
+ * Positions are set up as in PPTranspositionBenchmark.
+ *
+ * Usage: java PPMoveOrderingBenchmark [searchDepth [numPositions [randomPlies]]]
+ */
+public class PPMoveOrderingBenchmark {
+
+	public static void main(String[] args) {
+		int searchDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		System.out.printf("depth %d, %d positions after %d random plies\n", searchDepth, numPositions, randomPlies);
+		System.out.println("ordering        nodes     sec  first-move cutoff rate");
+		String[] orderingNames = {"generated", "tt-first", "ordered"};
+		long[] nodes = new long[orderingNames.length];
+		for (int ordering = 0; ordering < orderingNames.length; ordering++) {
+			long nanos = 0, cutoffNodes = 0, firstMoveCutoffs = 0;
+			for (int i = 0; i < numPositions; i++) {
+				PPStateMinimax player = new PPStateMinimax(searchDepth);
+				player.moveOrdering = (ordering == 2);
+				player.ttMoveFirst = (ordering == 1);
+				PPTranspositionBenchmark.setUpPosition(player, i, randomPlies);
+				long startNanos = System.nanoTime();
+				player.getPlay(Long.MAX_VALUE);
+				nanos += System.nanoTime() - startNanos;
+				nodes[ordering] += player.nodeCount;
+				cutoffNodes += player.cutoffNodes;
+				firstMoveCutoffs += player.firstMoveCutoffs;
+			}
+			System.out.printf("%-9s  %10d  %6.1f  %21.1f%%\n", orderingNames[ordering], nodes[ordering], nanos / 1e9,
+					100.0 * firstMoveCutoffs / Math.max(1, cutoffNodes));
+		}
+		System.out.printf("node reduction: tt-first %.1f%%, ordered %.1f%%\n", 100.0 * (nodes[0] - nodes[1]) / nodes[0],
+				100.0 * (nodes[0] - nodes[2]) / nodes[0]);
+	}
+}
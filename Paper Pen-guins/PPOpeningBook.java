@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * PPOpeningBook - a read-only book of placement-phase plays, memory-mapped from a file written by PPOpeningBookBuilder.
+ *
+ * Book positions are keyed by their Zobrist hash (see PPState.getHash), which identifies the board, the placements so far,
+ * and the player to move.  The file is a 16-byte header (magic number, version, number of entries, reserved) followed by
+ * entries sorted by hash, each 16 bytes: hash (long), search score (int), packed play (unsigned short, see
+ * PPState.packMove), and search depth (short), all big-endian.  Version 1 books packed plays with 7-bit positions and cannot
+ * be read.  A lookup is a binary search of the mapped entries and allocates nothing.  A book may be shared by threads.
+ */
+public class PPOpeningBook {
+
+	/**
+	 * book file magic number, "PPBK"
+	 */
+	public static final int MAGIC = 0x5050424B;
+
+	/**
+	 * book file format version
+	 */
+	public static final int VERSION = 2;
+
+	static final int HEADER_BYTES = 16;
+	static final int ENTRY_BYTES = 16;
+
+	ByteBuffer buffer;
+	int numEntries;
+
+	/**
+	 * @param buffer - book file contents
+	 * @throws IOException if the contents are not those of a book file
+	 */
+	PPOpeningBook(ByteBuffer buffer) throws IOException {
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException("Not a version " + VERSION + " opening book");
+		numEntries = buffer.getInt(8);
+		if (numEntries < 0 || buffer.capacity() != HEADER_BYTES + (long) numEntries * ENTRY_BYTES)
+			throw new IOException("Opening book has the wrong length");
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Memory-map an opening book file.
+	 * @param fileName - book file name
+	 * @return the book
+	 * @throws IOException if the file cannot be read or is not a book file
+	 */
+	public static PPOpeningBook open(String fileName) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			return new PPOpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())); // the mapping outlives the channel
+		}
+	}
+
+	/**
+	 * @return the number of book positions
+	 */
+	public int size() {
+		return numEntries;
+	}
+
+	/**
+	 * @param hash - Zobrist hash of a position
+	 * @return the index of the book entry of the position, or -1 if it is not in the book
+	 */
+	int find(long hash) {
+		int low = 0, high = numEntries - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midHash = buffer.getLong(HEADER_BYTES + mid * ENTRY_BYTES);
+			if (midHash < hash)
+				low = mid + 1;
+			else if (midHash > hash)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param state - a state
+	 * @return the packed book play of the state (see PPState.packMove), or PPState.NO_MOVE if the state is not in the book or the
+	 * book play is not legal (as after a hash collision)
+	 */
+	public int lookup(PPState state) {
+		int index = find(state.hash);
+		if (index == -1)
+			return PPState.NO_MOVE;
+		int move = buffer.getChar(HEADER_BYTES + index * ENTRY_BYTES + 12);
+		return state.isLegalMove(PPState.moveSrcPos(move), PPState.moveDestPos(move)) ? move : PPState.NO_MOVE;
+	}
+
+	/**
+	 * @param state - a state
+	 * @return the search score of the book play of the state, or 0 if the state is not in the book
+	 */
+	public int score(PPState state) {
+		int index = find(state.hash);
+		return (index == -1) ? 0 : buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+	}
+
+	/**
+	 * Write a book file.  Of entries with equal hashes, the one of greatest depth is kept.
+	 * @param fileName - book file name
+	 * @param hashes - position hashes
+	 * @param moves - packed plays
+	 * @param scores - search scores
+	 * @param depths - search depths
+	 * @param numEntries - number of entries to write from the arrays
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(String fileName, final long[] hashes, final int[] moves, int[] scores, final int[] depths, int numEntries) throws IOException {
+		Integer[] order = new Integer[numEntries];
+		for (int i = 0; i < numEntries; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int c = Long.compare(hashes[a], hashes[b]);
+				return (c != 0) ? c : Integer.compare(depths[b], depths[a]);
+			}
+		});
+		ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + numEntries * ENTRY_BYTES);
+		out.position(HEADER_BYTES);
+		int written = 0;
+		for (int k = 0; k < numEntries; k++) {
+			int i = order[k];
+			if (k > 0 && hashes[i] == hashes[order[k - 1]])
+				continue;
+			out.putLong(hashes[i]).putInt(scores[i]).putChar((char) moves[i]).putShort((short) depths[i]);
+			written++;
+		}
+		out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, written).putInt(12, 0);
+		out.flip();
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (out.hasRemaining())
+				channel.write(out);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PPOpeningBookBuilder - builds a PPOpeningBook offline.  For each board seed, the placement phase of PPState.TOTAL_PIECES
+ * plies is expanded into two book trees, one for each player.  In the tree of a player, that player's positions follow the
+ * play of a fixed-depth PPStateMinimax search, while at the opponent's positions the numReplies best replies are expanded, as
+ * ranked by searches of each reply at replyDepth, so that the book still applies when the opponent does not play as the engine
+ * would.  Every position of both trees is searched, and its play and score are recorded.  Seeds are searched in parallel on a
+ * thread pool.  The book is then reopened, checked against the recorded plays, and timed.
+ *
+ * Games always begin with SQUARE to play (see PPState), so only positions reachable from that start are recorded.
+ *
+ * Usage: java PPOpeningBookBuilder bookFile [firstSeed [numSeeds [searchDepth [numReplies [replyDepth [numThreads]]]]]]
+ */
+public class PPOpeningBookBuilder {
+
+	final int searchDepth, numReplies, replyDepth;
+	final PPStateMinimax searcher, ranker;
+	final HashMap<Long, Integer> searched = new HashMap<Long, Integer>(); // packed plays of the positions already searched, by hash
+	final ArrayList<PPState> states = new ArrayList<PPState>(); // searched positions, with their plays, scores, and depths
+	final ArrayList<Integer> moves = new ArrayList<Integer>();
+	final ArrayList<Integer> scores = new ArrayList<Integer>();
+	final ArrayList<Integer> depths = new ArrayList<Integer>();
+
+	/**
+	 * @param searchDepth - depth of the searches of book positions
+	 * @param numReplies - number of opponent replies expanded at each opponent position
+	 * @param replyDepth - depth of the searches ranking the opponent replies
+	 */
+	PPOpeningBookBuilder(int searchDepth, int numReplies, int replyDepth) {
+		this.searchDepth = searchDepth;
+		this.numReplies = numReplies;
+		this.replyDepth = replyDepth;
+		searcher = new PPStateMinimax(searchDepth);
+		searcher.stats = new PPSearchStats();
+		ranker = new PPStateMinimax(replyDepth);
+		ranker.stats = new PPSearchStats();
+	}
+
+	/**
+	 * Search the placement positions of both players' book trees of a board.
+	 * @param seed - board seed
+	 */
+	void build(long seed) {
+		PPState state = new PPState();
+		state.init(seed);
+		expand(state, PPState.SQUARE);
+		expand(state, PPState.CIRCLE);
+	}
+
+	/**
+	 * Search a position of a book tree and expand its book plays.
+	 * @param state - a placement position; restored on return
+	 * @param bookPlayer - the player whose book tree is expanded
+	 */
+	void expand(PPState state, int bookPlayer) {
+		if (state.turnsTaken >= PPState.TOTAL_PIECES)
+			return;
+		int move = search(state);
+		if (state.currentPlayer == bookPlayer) {
+			state.makeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+			expand(state, bookPlayer);
+			state.unmakeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+			return;
+		}
+		if (state.turnsTaken + 1 >= PPState.TOTAL_PIECES)
+			return; // the replies leave the book
+		int[] replies = bestReplies(state);
+		for (int reply : replies) {
+			state.makeMove(PPState.moveSrcPos(reply), PPState.moveDestPos(reply));
+			expand(state, bookPlayer);
+			state.unmakeMove(PPState.moveSrcPos(reply), PPState.moveDestPos(reply));
+		}
+	}
+
+	/**
+	 * Search a position at searchDepth, recording its play, score, and depth unless it has already been searched.
+	 * @param state - position to search
+	 * @return the packed play
+	 */
+	int search(PPState state) {
+		Integer searchedMove = searched.get(state.hash);
+		if (searchedMove != null)
+			return searchedMove;
+		searcher.copy(state);
+		int[] play = searcher.getPlay(Long.MAX_VALUE);
+		int move = PPState.packMove(play[0], play[1]);
+		searched.put(state.hash, move);
+		states.add(new PPState(state));
+		moves.add(move);
+		scores.add(searcher.stats.iterationScore[searcher.stats.numIterations - 1]);
+		depths.add(searcher.completedDepth);
+		return move;
+	}
+
+	/**
+	 * @param state - a placement position
+	 * @return the (at most) numReplies best packed plays, best first, each ranked by a replyDepth search of the position it leads to
+	 */
+	int[] bestReplies(PPState state) {
+		int[] replies = new int[PPState.MAX_LEGAL_MOVES];
+		int numMoves = state.generateMoves(replies, 0);
+		int[] values = new int[numMoves];
+		for (int i = 0; i < numMoves; i++) {
+			ranker.copy(state);
+			ranker.makeMove(PPState.moveSrcPos(replies[i]), PPState.moveDestPos(replies[i]));
+			ranker.getPlay(Long.MAX_VALUE);
+			values[i] = -ranker.stats.iterationScore[ranker.stats.numIterations - 1];
+		}
+		int numBest = Math.min(numReplies, numMoves);
+		for (int i = 0; i < numBest; i++) // partial selection sort
+			for (int j = i + 1; j < numMoves; j++)
+				if (values[j] > values[i]) {
+					int value = values[i], reply = replies[i];
+					values[i] = values[j];
+					replies[i] = replies[j];
+					values[j] = value;
+					replies[j] = reply;
+				}
+		int[] best = new int[numBest];
+		System.arraycopy(replies, 0, best, 0, numBest);
+		return best;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: java PPOpeningBookBuilder bookFile [firstSeed [numSeeds [searchDepth [numReplies [replyDepth [numThreads]]]]]]");
+			System.exit(1);
+		}
+		String bookFile = args[0];
+		long firstSeed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int numSeeds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		final int searchDepth = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+		final int numReplies = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+		final int replyDepth = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+		int numThreads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d seeds from %d, depth %d, %d replies ranked at depth %d, %d threads\n", numSeeds, firstSeed, searchDepth, numReplies,
+				replyDepth, numThreads);
+
+		// Expand the book trees of each seed
+		long startNanos = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+		ArrayList<Future<PPOpeningBookBuilder>> futures = new ArrayList<Future<PPOpeningBookBuilder>>();
+		for (long seed = firstSeed; seed < firstSeed + numSeeds; seed++) {
+			final long boardSeed = seed;
+			futures.add(pool.submit(new Callable<PPOpeningBookBuilder>() {
+				public PPOpeningBookBuilder call() {
+					PPOpeningBookBuilder builder = new PPOpeningBookBuilder(searchDepth, numReplies, replyDepth);
+					builder.build(boardSeed);
+					return builder;
+				}
+			}));
+		}
+		ArrayList<PPState> states = new ArrayList<PPState>();
+		ArrayList<Integer> moveList = new ArrayList<Integer>(), scoreList = new ArrayList<Integer>(), depthList = new ArrayList<Integer>();
+		for (Future<PPOpeningBookBuilder> future : futures) {
+			PPOpeningBookBuilder builder = future.get();
+			states.addAll(builder.states);
+			moveList.addAll(builder.moves);
+			scoreList.addAll(builder.scores);
+			depthList.addAll(builder.depths);
+		}
+		pool.shutdown();
+		int numPositions = states.size();
+		long[] hashes = new long[numPositions];
+		int[] moves = new int[numPositions], scores = new int[numPositions], depths = new int[numPositions];
+		for (int i = 0; i < numPositions; i++) {
+			hashes[i] = states.get(i).hash;
+			moves[i] = moveList.get(i);
+			scores[i] = scoreList.get(i);
+			depths[i] = depthList.get(i);
+		}
+		System.out.printf("searched %d positions in %.1f sec\n", numPositions, (System.nanoTime() - startNanos) / 1e9);
+		PPOpeningBook.write(bookFile, hashes, moves, scores, depths, numPositions);
+
+		// Check and time lookups of the book positions
+		PPOpeningBook book = PPOpeningBook.open(bookFile);
+		int mismatches = 0;
+		for (int i = 0; i < numPositions; i++)
+			if (book.lookup(states.get(i)) != moves[i])
+				mismatches++;
+		int rounds = Math.max(1, 1000000 / Math.max(1, numPositions));
+		long checksum = 0;
+		startNanos = System.nanoTime();
+		for (int round = 0; round < rounds; round++)
+			for (PPState state : states)
+				checksum += book.lookup(state);
+		double lookupNanos = (double) (System.nanoTime() - startNanos) / ((long) rounds * Math.max(1, numPositions));
+		System.out.printf("wrote %s: %d positions, %d lookup mismatches, %.0f ns per lookup (checksum %d)\n", bookFile, book.size(), mismatches,
+				lookupNanos, checksum);
+	}
+}
@@ -0,0 +1,43 @@
+/**
+ * PPParallelBenchmark - measures Lazy SMP time-to-depth speedup of PPStateMinimax search.  For each thread count, each position
+ * is searched to a fixed depth from an empty transposition table, and the total search time, speedup over one thread, and
+ * nodes per second (counting helper search nodes) are reported.
+ *
+ * Positions are set up as in PPTranspositionBenchmark.
+ *
+ * Usage: java PPParallelBenchmark [searchDepth [numPositions [randomPlies [threadCounts...]]]]
+ */
+public class PPParallelBenchmark {
+
+	public static void main(String[] args) {
+		int searchDepth = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int[] threadCounts = {1, 2, 4, 8, 16};
+		if (args.length > 3) {
+			threadCounts = new int[args.length - 3];
+			for (int i = 0; i < threadCounts.length; i++)
+				threadCounts[i] = Integer.parseInt(args[i + 3]);
+		}
+		System.out.printf("depth %d, %d positions after %d random plies, %d available processors\n", searchDepth, numPositions, randomPlies,
+				Runtime.getRuntime().availableProcessors());
+		System.out.println("threads     sec  speedup        nodes    nodes/sec");
+		double baseSeconds = 0;
+		for (int numThreads : threadCounts) {
+			long nanos = 0, nodes = 0;
+			for (int i = 0; i < numPositions; i++) {
+				PPStateMinimax player = new PPStateMinimax(searchDepth);
+				player.setNumThreads(numThreads);
+				PPTranspositionBenchmark.setUpPosition(player, i, randomPlies);
+				player.getPlay(Long.MAX_VALUE);
+				nanos += player.searchNanos;
+				nodes += player.totalNodeCount;
+				player.setNumThreads(1); // release helper threads
+			}
+			double seconds = nanos / 1e9;
+			if (baseSeconds == 0)
+				baseSeconds = seconds;
+			System.out.printf("%7d  %6.2f  %7.2f  %11d  %11.0f\n", numThreads, seconds, baseSeconds / seconds, nodes, nodes / seconds);
+		}
+	}
+}
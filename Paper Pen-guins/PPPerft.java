@@ -0,0 +1,163 @@
+/**
+ * PPPerft - a perft (performance test) tool for move generation.  Counts the leaf nodes of the game tree to a fixed depth from
+ * seeded positions with PPState.generateMoves, makeMove, and unmakeMove, and again with a simple reference generator that walks
+ * the lines of play over a copy of the grid.  The counts must agree.  A pass counts as a move, and a finished game is a leaf.
+ * If the counts disagree, they are divided by first move to locate the difference.
+ *
+ * Each position is a PaperPenguins board after a number of seeded random plies, as in PPTranspositionBenchmark.  By default,
+ * positions at the start of the placement phase and early in the movement phase are counted.  Boards of other sizes than
+ * PPState.SIZE may be given, e.g. size 10 or 12 to check the line-walking move generation of boards of more than 64 positions.
+ *
+ * Usage: java PPPerft [depth [numSeeds [randomPlies [size]]]]
+ */
+public class PPPerft {
+
+	final PPGeometry geometry;
+	int[] moveStack;
+
+	public PPPerft() {
+		this(PPState.GEOMETRY);
+	}
+
+	/**
+	 * @param geometry - geometry of the boards to count
+	 */
+	public PPPerft(PPGeometry geometry) {
+		this.geometry = geometry;
+		moveStack = new int[(geometry.maxGamePlies + 1) * geometry.maxLegalMoves];
+	}
+
+	/**
+	 * Count leaf nodes with PPState move generation.
+	 * @param state - state to count from; restored on return
+	 * @param depth - depth remaining
+	 * @param first - index of free moveStack entries
+	 * @return number of leaf nodes
+	 */
+	long perft(PPState state, int depth, int first) {
+		if (depth == 0 || state.gameOver())
+			return 1;
+		int end = first + state.generateMoves(moveStack, first);
+		if (end == first)
+			moveStack[end++] = PPState.PASS_MOVE; // the game is not over, so the other player can move
+		long hash = state.getHash();
+		long nodes = 0;
+		for (int i = first; i < end; i++) {
+			int srcPos = PPState.moveSrcPos(moveStack[i]), destPos = PPState.moveDestPos(moveStack[i]);
+			state.makeMove(srcPos, destPos);
+			nodes += perft(state, depth - 1, end);
+			state.unmakeMove(srcPos, destPos);
+			if (state.getHash() != hash)
+				throw new IllegalStateException("unmakeMove did not restore the hash after " + state.moveToString(srcPos, destPos));
+		}
+		return nodes;
+	}
+
+	/**
+	 * Count leaf nodes with the reference generator.
+	 * @param geometry - geometry of the board
+	 * @param grid - grid contents as in PPState.grid; restored on return
+	 * @param player - player to move (SQUARE or CIRCLE)
+	 * @param turnsTaken - turns taken, counting passes
+	 * @param depth - depth remaining
+	 * @return number of leaf nodes
+	 */
+	static long referencePerft(PPGeometry geometry, int[] grid, int player, int turnsTaken, int depth) {
+		if (depth == 0 || (turnsTaken >= PPState.TOTAL_PIECES && !referenceCanMove(geometry, grid, PPState.SQUARE)
+				&& !referenceCanMove(geometry, grid, PPState.CIRCLE)))
+			return 1;
+		int opponent = (player == PPState.SQUARE) ? PPState.CIRCLE : PPState.SQUARE;
+		long nodes = 0;
+		boolean moved = false;
+		if (turnsTaken < PPState.TOTAL_PIECES) {
+			for (int pos = 0; pos < geometry.numPos; pos++)
+				if (grid[pos] > 0) {
+					int fish = grid[pos];
+					grid[pos] = player;
+					nodes += referencePerft(geometry, grid, opponent, turnsTaken + 1, depth - 1);
+					grid[pos] = fish;
+					moved = true;
+				}
+		}
+		else
+			for (int srcPos = 0; srcPos < geometry.numPos; srcPos++)
+				if (grid[srcPos] == player)
+					for (int[] line : geometry.lines[srcPos])
+						for (int destPos : line) {
+							if (grid[destPos] <= 0)
+								break;
+							int fish = grid[destPos];
+							grid[destPos] = player;
+							grid[srcPos] = PPState.BLOCKED;
+							nodes += referencePerft(geometry, grid, opponent, turnsTaken + 1, depth - 1);
+							grid[srcPos] = player;
+							grid[destPos] = fish;
+							moved = true;
+						}
+		if (!moved) // pass
+			nodes = referencePerft(geometry, grid, opponent, turnsTaken + 1, depth - 1);
+		return nodes;
+	}
+
+	/**
+	 * @return whether the given player has a piece next to a position with fish
+	 */
+	static boolean referenceCanMove(PPGeometry geometry, int[] grid, int player) {
+		for (int pos = 0; pos < geometry.numPos; pos++)
+			if (grid[pos] == player)
+				for (int[] line : geometry.lines[pos])
+					if (grid[line[0]] > 0)
+						return true;
+		return false;
+	}
+
+	/**
+	 * Count leaf nodes with both generators for each first move, and print those that disagree.
+	 */
+	void divide(PPState state, int depth) {
+		int end = state.generateMoves(moveStack, 0);
+		if (end == 0)
+			moveStack[end++] = PPState.PASS_MOVE;
+		int[] firstMoves = new int[end];
+		System.arraycopy(moveStack, 0, firstMoves, 0, end);
+		for (int move : firstMoves) {
+			int srcPos = PPState.moveSrcPos(move), destPos = PPState.moveDestPos(move);
+			state.makeMove(srcPos, destPos);
+			long nodes = perft(state, depth - 1, end);
+			long referenceNodes = referencePerft(geometry, state.getGrid(), state.getCurrentPlayer(), state.getTurnsTaken(), depth - 1);
+			state.unmakeMove(srcPos, destPos);
+			if (nodes != referenceNodes)
+				System.out.printf("  %s: %d, reference %d\n", state.moveToString(srcPos, destPos), nodes, referenceNodes);
+		}
+	}
+
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int numSeeds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int[] randomPlies = (args.length > 2) ? new int[] {Integer.parseInt(args[2])} : new int[] {0, PPState.TOTAL_PIECES + 2};
+		PPGeometry geometry = PPGeometry.forSize(args.length > 3 ? Integer.parseInt(args[3]) : PPState.SIZE);
+		PPPerft perft = new PPPerft(geometry);
+		boolean allMatch = true;
+		System.out.println(" seed  plies  depth        nodes    reference  nodes/sec  reference nodes/sec");
+		for (int plies : randomPlies)
+			for (long seed = 0; seed < numSeeds; seed++) {
+				PPState state = new PPState(geometry);
+				PPTranspositionBenchmark.setUpPosition(state, seed, plies);
+				long startNanos = System.nanoTime();
+				long nodes = perft.perft(state, depth, 0);
+				long nanos = System.nanoTime() - startNanos;
+				startNanos = System.nanoTime();
+				long referenceNodes = referencePerft(geometry, state.getGrid(), state.getCurrentPlayer(), state.getTurnsTaken(), depth);
+				long referenceNanos = System.nanoTime() - startNanos;
+				System.out.printf("%5d  %5d  %5d  %11d  %11d  %9.0f  %19.0f%s\n", seed, plies, depth, nodes, referenceNodes, nodes / (nanos / 1e9),
+						referenceNodes / (referenceNanos / 1e9), (nodes == referenceNodes) ? "" : "  MISMATCH");
+				if (nodes != referenceNodes) {
+					allMatch = false;
+					perft.divide(state, depth);
+				}
+			}
+		System.out.println(allMatch ? "All counts match." : "Counts differ.");
+		if (!allMatch)
+			System.exit(1);
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * PPPonderBenchmark - plays games between a pondering PPStateMinimax and a non-pondering one with equal game clocks, alternating
+ * colors, and reports the pondering player's ponder hit rate, the decision time of each player, and game results.  Ponder searches
+ * run on their own thread, so results on a single core understate the benefit of pondering.
+ *
+ * Usage: java PPPonderBenchmark [numGames [gameMillis [ponderMode]]]
+ * where ponderMode is 1 (PONDER_PREDICTED) or 2 (PONDER_ALL).
+ */
+public class PPPonderBenchmark {
+
+	public static void main(String[] args) {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long gameMillis = args.length > 1 ? Long.parseLong(args[1]) : 20000;
+		int ponderMode = args.length > 2 ? Integer.parseInt(args[2]) : PPStateMinimax.PONDER_PREDICTED;
+		System.out.printf("%d games, %d ms per player per game, ponder mode %d\n", numGames, gameMillis, ponderMode);
+		long hits = 0, misses = 0, instantPlays = 0, ponderPlays = 0;
+		long[] plays = new long[2], nanos = new long[2];
+		double ponderPoints = 0;
+		for (int game = 0; game < numGames; game++) {
+			PPStateMinimax[] players = {new PPStateMinimax(), new PPStateMinimax()}; // pondering player, other player
+			players[0].setPonderMode(ponderMode);
+			int ponderSide = game % 2; // 0 if the pondering player is SQUARE
+			PPState referee = new PPState();
+			referee.init(game / 2);
+			for (PPStateMinimax player : players)
+				player.init(game / 2);
+			long[] millisUsed = new long[2];
+			while (!referee.gameOver()) {
+				int p = ((referee.getCurrentPlayer() == PPState.SQUARE) == (ponderSide == 0)) ? 0 : 1;
+				long startNanos = System.nanoTime();
+				int[] play = players[p].getPlay(gameMillis - millisUsed[p]);
+				long playNanos = System.nanoTime() - startNanos;
+				millisUsed[p] += playNanos / 1000000;
+				plays[p]++;
+				nanos[p] += playNanos;
+				if (p == 0) {
+					ponderPlays++;
+					if (playNanos < 1000000)
+						instantPlays++;
+				}
+				referee.makeMove(play[0], play[1]);
+				for (PPStateMinimax player : players)
+					player.makeMove(play[0], play[1]);
+			}
+			players[0].setPonderMode(PPStateMinimax.NO_PONDER);
+			hits += players[0].ponderHits;
+			misses += players[0].ponderMisses;
+			for (PPStateMinimax player : players)
+				player.close();
+			int margin = referee.getScore()[ponderSide] - referee.getScore()[1 - ponderSide];
+			ponderPoints += (margin > 0) ? 1 : (margin == 0) ? 0.5 : 0;
+		}
+		System.out.printf("ponder hits %d, misses %d (hit rate %.1f%%), plays under 1 ms %d of %d\n", hits, misses,
+				100.0 * hits / Math.max(1, hits + misses), instantPlays, ponderPlays);
+		System.out.printf("mean decision ms: pondering %.1f, other %.1f\n", nanos[0] / 1e6 / Math.max(1, plays[0]), nanos[1] / 1e6 / Math.max(1, plays[1]));
+		System.out.printf("pondering player score %.1f of %d\n", ponderPoints, numGames);
+	}
+}
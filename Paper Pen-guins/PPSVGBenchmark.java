@@ -0,0 +1,90 @@
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * PPSVGBenchmark - measures PPSVGRenderer throughput in boards per second over the frames of random games: rendering into
+ * memory, writing one SVG file per frame (as PPView.exportSVG does), and writing one file per game as a ZIP archive
+ * (writeGame), an animated SVG (writeAnimation), and an HTML pager (writePager).  Files are written to a temporary directory
+ * that is deleted afterwards.
+ *
+ * Usage: java PPSVGBenchmark [numGames [rounds]]
+ */
+public class PPSVGBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		// Random games
+		PPGameRecord[] records = new PPGameRecord[numGames];
+		int numFrames = 0;
+		int[] legalMoves = new int[PPState.MAX_LEGAL_MOVES];
+		for (int game = 0; game < numGames; game++) {
+			records[game] = new PPGameRecord(game, (game % 2 == 0) ? PPState.SQUARE : PPState.CIRCLE);
+			PPState state = records[game].start();
+			Random random = new Random(game);
+			while (!state.gameOver()) {
+				int n = state.generateMoves(legalMoves, 0);
+				int move = (n == 0) ? PPState.PASS_MOVE : legalMoves[random.nextInt(n)];
+				records[game].add(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+				state.makeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+			}
+			numFrames += records[game].getNumMoves() + 1;
+		}
+		PPSVGRenderer renderer = PPSVGRenderer.forSize(PPState.SIZE);
+		File dir = File.createTempFile("ppsvg", "");
+		dir.delete();
+		dir.mkdir();
+		System.out.printf("%d games, %d frames; boards per second:\n", numGames, numFrames);
+		System.out.println("round      memory     files  archives  animated SVG  HTML pager");
+		for (int round = 0; round < rounds; round++) {
+			// Render into memory
+			byte[] title = PPSVGRenderer.bytes("frame");
+			ByteBuffer buffer = ByteBuffer.allocate(renderer.frameBytes(title));
+			long startNanos = System.nanoTime();
+			for (PPGameRecord record : records) {
+				PPState state = record.start();
+				for (int ply = 0; ply <= record.getNumMoves(); ply++) {
+					if (ply > 0)
+						state.makeMove(PPState.moveSrcPos(record.getMove(ply - 1)), PPState.moveDestPos(record.getMove(ply - 1)));
+					buffer.clear();
+					renderer.renderState(state, title, null, 0, buffer);
+				}
+			}
+			double memorySeconds = (System.nanoTime() - startNanos) / 1e9;
+
+			// One file per frame
+			int[] noHighlights = {};
+			startNanos = System.nanoTime();
+			for (int game = 0; game < numGames; game++) {
+				PPState state = records[game].start();
+				for (int ply = 0; ply <= records[game].getNumMoves(); ply++) {
+					if (ply > 0)
+						state.makeMove(PPState.moveSrcPos(records[game].getMove(ply - 1)), PPState.moveDestPos(records[game].getMove(ply - 1)));
+					renderer.writeState(new File(dir, String.format("g%d-%03d.svg", game, ply)).getPath(), state, noHighlights);
+				}
+			}
+			double fileSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+			// One file per game
+			startNanos = System.nanoTime();
+			for (int game = 0; game < numGames; game++)
+				renderer.writeGame(new File(dir, "g" + game + ".zip").getPath(), records[game], "g" + game + "-");
+			double archiveSeconds = (System.nanoTime() - startNanos) / 1e9;
+			startNanos = System.nanoTime();
+			for (int game = 0; game < numGames; game++)
+				renderer.writeAnimation(new File(dir, "g" + game + ".svg").getPath(), records[game], 1000);
+			double animationSeconds = (System.nanoTime() - startNanos) / 1e9;
+			startNanos = System.nanoTime();
+			for (int game = 0; game < numGames; game++)
+				renderer.writePager(new File(dir, "g" + game + ".html").getPath(), records[game]);
+			double pagerSeconds = (System.nanoTime() - startNanos) / 1e9;
+			System.out.printf("%5d  %10.0f  %8.0f  %8.0f  %12.0f  %10.0f\n", round, numFrames / memorySeconds, numFrames / fileSeconds,
+					numFrames / archiveSeconds, numFrames / animationSeconds, numFrames / pagerSeconds);
+		}
+		for (File file : dir.listFiles())
+			file.delete();
+		dir.delete();
+	}
+}
@@ -0,0 +1,569 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * PPSVGRenderer - a streaming SVG renderer of PPState frames (as drawn by PPView.exportSVG) and PaperPenguins boards (as drawn
+ * by PaperPenguins.toFile).  Every element that depends only on the board size, i.e. the walls, labels, fish numbers, piece
+ * marks, and highlight of each position, is formatted once at construction into a byte template.  Rendering a frame copies the
+ * templates selected by the state into a buffer and formats only fish counts and scores, reading the state's grids directly.
+ *
+ * Frames are rendered into a per-thread buffer that is reused from call to call and written with one file channel write, or
+ * deflated into an archive entry.  A game, given by a PPGameRecord, is exported by replaying it once into a single file:
+ * writeAnimation writes an animated SVG, writePager an HTML page of all frames, and writeGame a ZIP archive of SVG frames.  The
+ * templates of a renderer are final and never modified after construction, so a renderer may be shared by threads; forSize
+ * caches one per board size.  PPSVGBenchmark measures throughput.
+ */
+public class PPSVGRenderer {
+
+	/**
+	 * initial capacity of the per-thread render buffers
+	 */
+	public static final int BUFFER_BYTES = 1 << 16;
+
+	static final byte[] PROLOG = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!DOCTYPE svg PUBLIC \"-//W3C//DTD SVG 1.1 Basic//EN\" \"http://www.w3.org/Graphics/SVG/1.1/DTD/svg11-basic.dtd\">\n");
+	static final byte[] TEXT_END = bytes("</text>\n");
+	static final byte[] TITLE_END = bytes("</title>\n<desc>Paper Penguins ");
+	static final byte[] DESC_END = bytes("</desc>\n<g style=\"fill: none; stroke: black; font-family: sans-serif; font-size: 12pt; text-anchor: middle\">\n");
+	static final byte[] SVG_END = bytes("</g>\n</svg>\n");
+	static final byte[] FRAME_START = bytes("<g visibility=\"hidden\"><set attributeName=\"visibility\" to=\"visible\" begin=\"");
+	static final byte[] FRAME_DURATION = bytes("ms\" dur=\"");
+	static final byte[] FRAME_TIMING_END = bytes("ms\"/>\n");
+	static final byte[] LAST_FRAME_TIMING_END = bytes("ms\" fill=\"freeze\"/>\n");
+	static final byte[] FRAME_END = bytes("</g>\n");
+	static final byte[] PAGER_START = bytes("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>");
+	static final byte[] PAGER_TITLE_END = bytes("</title>\n<style>.frame { display: none; } .frame.shown { display: block; }</style>\n</head>\n<body>\n"
+			+ "<div><button onclick=\"show(frame - 1)\">&lt;</button> <span id=\"ply\"></span> <button onclick=\"show(frame + 1)\">&gt;</button></div>\n");
+	static final byte[] PAGER_FRAME_START = bytes("<div class=\"frame\">\n");
+	static final byte[] PAGER_FRAME_END = bytes("</div>\n");
+	static final byte[] PAGER_END = bytes("<script>\n"
+			+ "var frames = document.getElementsByClassName(\"frame\"), frame = 0;\n"
+			+ "function show(i) {\n"
+			+ "\tif (i < 0 || i >= frames.length)\n\t\treturn;\n"
+			+ "\tframes[frame].className = \"frame\";\n"
+			+ "\tframe = i;\n"
+			+ "\tframes[frame].className = \"frame shown\";\n"
+			+ "\tdocument.getElementById(\"ply\").textContent = \"ply \" + frame + \" of \" + (frames.length - 1);\n"
+			+ "}\n"
+			+ "document.onkeydown = function(e) {\n"
+			+ "\tif (e.key == \"ArrowLeft\")\n\t\tshow(frame - 1);\n"
+			+ "\telse if (e.key == \"ArrowRight\")\n\t\tshow(frame + 1);\n"
+			+ "};\n"
+			+ "show(0);\n"
+			+ "</script>\n</body>\n</html>\n");
+
+	/**
+	 * maximum bytes of a formatted int
+	 */
+	static final int INT_BYTES = 11;
+
+	static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_BYTES);
+		}
+	};
+
+	static final HashMap<Integer, PPSVGRenderer> renderers = new HashMap<Integer, PPSVGRenderer>();
+
+	final int size;
+	final double fillOpacity;
+	final byte[] stateStart, boardStart, walls, labels, boardEnd, squareScoreStart, circleScoreStart;
+	final byte[][] toPlayMarks = new byte[2][];
+	final byte[][] highlights, fishTextStarts, squareMarks, squareBlockedMarks, circleMarks, circleBlockedMarks;
+
+	/**
+	 * bytes of the largest frame, apart from its title
+	 */
+	final int maxFrameBytes;
+
+	/**
+	 * Create a renderer with the current PPView.fillOpacity.
+	 * @param size - board width and height
+	 */
+	public PPSVGRenderer(int size) {
+		this.size = size;
+		fillOpacity = PPView.fillOpacity;
+		int cellWidth = 25, cellHeight = cellWidth, width = size * cellWidth, height = size * cellHeight;
+		int margin = 10 + cellWidth;
+		int cellMargin = (int) Math.round(Math.min(cellWidth, cellHeight) / 10.0);
+		int totalWidth = width + 2 * margin;
+		int ch3rd = cellHeight / 3, cwhalf = cellWidth / 2;
+		double radius = (double) Math.min(cellWidth / 2, cellHeight / 2) - cellMargin + 1;
+		stateStart = bytes(svgStart(totalWidth, height + cellHeight + 2 * margin));
+		boardStart = bytes(svgStart(totalWidth, height + 2 * cellHeight + 2 * margin));
+
+		// walls
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" style=\"stroke-width:3;\"/>\n", margin - 1, margin - 1, width + 2, height + 2));
+		for (int i = 0; i <= size; i++)
+			sb.append(String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" />\n", margin + i * cellWidth, margin, margin + i * cellWidth, margin + height));
+		for (int i = 0; i <= size; i++)
+			sb.append(String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" />\n", margin, margin + i * cellHeight, margin + width, margin + i * cellHeight));
+		walls = bytes(sb.toString());
+
+		// column letters and row numbers
+		sb.setLength(0);
+		for (int c = 0; c < size; c++) {
+			String text = String.valueOf((char) ('a' + c));
+			sb.append(text(margin + c * cellWidth + cwhalf + .5, margin - cellHeight + cellHeight - ch3rd + 1, "black", text));
+			sb.append(text(margin + c * cellWidth + cwhalf + .5, margin + size * cellHeight + cellHeight - ch3rd + 1, "black", text));
+		}
+		for (int r = 0; r < size; r++) {
+			String text = String.valueOf(size - r);
+			sb.append(text(margin - cellWidth + cwhalf + .5, margin + r * cellHeight + cellHeight - ch3rd + 1, "black", text));
+			sb.append(text(margin + size * cellWidth + cwhalf + .5, margin + r * cellHeight + cellHeight - ch3rd + 1, "black", text));
+		}
+		labels = bytes(sb.toString());
+
+		// position templates
+		int numPos = size * size;
+		highlights = new byte[numPos][];
+		fishTextStarts = new byte[numPos][];
+		squareMarks = new byte[numPos][];
+		squareBlockedMarks = new byte[numPos][];
+		circleMarks = new byte[numPos][];
+		circleBlockedMarks = new byte[numPos][];
+		int maxHighlights = 0, maxCells = 0;
+		for (int pos = 0; pos < numPos; pos++) {
+			int ulx = margin + (pos % size) * cellWidth, uly = margin + (size - pos / size - 1) * cellHeight;
+			highlights[pos] = bytes(String.format("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" style=\"fill:yellow;\"/>\n", ulx, uly, cellWidth, cellHeight));
+			fishTextStarts[pos] = bytes(textStart(ulx + cwhalf + .5, uly + cellHeight - ch3rd + 1, "black"));
+			String cross = String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" style=\"stroke:%%1$s;stroke-width:1;\"/>\n", ulx + 1, uly + 1, ulx + cellWidth - 1, uly + cellWidth - 1)
+					+ String.format("<line x1=\"%d\" y1=\"%d\" x2=\"%d\" y2=\"%d\" style=\"stroke:%%1$s;stroke-width:1;\"/>\n", ulx + cellWidth - 1, uly + 1, ulx + 1, uly + cellWidth - 1);
+			String square = String.format("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" style=\"stroke:blue;stroke-width:1;", 
+					ulx + cellMargin, uly + cellMargin, cellWidth - 2 * cellMargin, cellHeight - 2 * cellMargin);
+			String circle = String.format("<circle cx=\"%f\" cy=\"%f\" r=\"%f\" style=\"stroke:red;stroke-width:1;", 
+					ulx + (cellWidth / 2) + .5, uly + (cellHeight / 2) + .5, radius);
+			squareMarks[pos] = bytes(filledSquare(ulx + cellMargin, uly + cellMargin, cellWidth - 2 * cellMargin, cellHeight - 2 * cellMargin, String.valueOf(fillOpacity)));
+			squareBlockedMarks[pos] = bytes(square + "\"/>\n" + String.format(cross, "blue"));
+			circleMarks[pos] = bytes(filledCircle(ulx + (cellWidth / 2) + .5, uly + (cellHeight / 2) + .5, radius, String.valueOf(fillOpacity)));
+			circleBlockedMarks[pos] = bytes(circle + "\"/>\n" + String.format(cross, "red"));
+			maxHighlights += highlights[pos].length;
+			maxCells += fishTextStarts[pos].length + INT_BYTES + TEXT_END.length
+					+ Math.max(Math.max(squareMarks[pos].length, squareBlockedMarks[pos].length), Math.max(circleMarks[pos].length, circleBlockedMarks[pos].length));
+		}
+
+		// score footer of a state frame
+		int ulx = margin, uly = margin + (size + 1) * cellHeight;
+		String opacity = String.valueOf(fillOpacity);
+		squareScoreStart = bytes(filledSquare(ulx + cellMargin, uly + cellMargin, cellWidth - 2 * cellMargin, cellHeight - 2 * cellMargin, opacity)
+				+ textStart(ulx + cellWidth + cwhalf + .5, uly + cellHeight - ch3rd + 1, "blue"));
+		ulx = (int) (margin + 2.5 * cellWidth);
+		circleScoreStart = bytes(filledCircle(ulx + (cellWidth / 2) + .5, uly + (cellHeight / 2) + .5, radius, opacity)
+				+ textStart(ulx + cellWidth + cwhalf + .5, uly + cellHeight - ch3rd + 1, "red"));
+		ulx = margin + 5 * cellWidth;
+		String toPlay = text(ulx + 1.55 * cellWidth + cwhalf + .5, uly + cellHeight - ch3rd + 1, "black", "to play");
+		toPlayMarks[0] = bytes(filledSquare(ulx + cellMargin, uly + cellMargin, cellWidth - 2 * cellMargin, cellHeight - 2 * cellMargin, opacity) + toPlay);
+		toPlayMarks[1] = bytes(filledCircle(ulx + (cellWidth / 2) + .5, uly + (cellHeight / 2) + .5, radius, opacity) + toPlay);
+
+		// footer of a board: unfilled square and circle below the board
+		ulx = margin;
+		boardEnd = bytes(filledSquare(ulx + cellMargin, uly + cellMargin, cellWidth - 2 * cellMargin, cellHeight - 2 * cellMargin, "0")
+				+ filledCircle(ulx + (cellWidth / 2) + .5, uly + cellHeight + (cellHeight / 2) + .5, radius, "0") + "</g>\n</svg>\n");
+
+		maxFrameBytes = PROLOG.length + Math.max(stateStart.length, boardStart.length) + TITLE_END.length + DESC_END.length + maxHighlights + walls.length
+				+ maxCells + labels.length + squareScoreStart.length + circleScoreStart.length + 2 * (INT_BYTES + TEXT_END.length)
+				+ Math.max(Math.max(toPlayMarks[0].length, toPlayMarks[1].length) + SVG_END.length, boardEnd.length)
+				+ Math.max(FRAME_START.length + FRAME_DURATION.length + LAST_FRAME_TIMING_END.length + 2 * INT_BYTES + 2 * FRAME_END.length,
+						PAGER_FRAME_START.length + PAGER_FRAME_END.length);
+	}
+
+	/**
+	 * @param size - board width and height
+	 * @return a shared renderer of the given board size with the current PPView.fillOpacity
+	 */
+	public static synchronized PPSVGRenderer forSize(int size) {
+		PPSVGRenderer renderer = renderers.get(size);
+		if (renderer == null || renderer.fillOpacity != PPView.fillOpacity) {
+			renderer = new PPSVGRenderer(size);
+			renderers.put(size, renderer);
+		}
+		return renderer;
+	}
+
+	static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	static String svgStart(int totalWidth, int totalHeight) {
+		return "<svg version=\"1.1\" baseProfile=\"basic\" xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" id=\"svg-root\" width=\""
+				+ totalWidth + "\" height=\"" + totalHeight + "\">\n<title>";
+	}
+
+	static String filledSquare(int x, int y, int width, int height, String opacity) {
+		return String.format("<rect x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" style=\"stroke:blue;stroke-width:1;fill:blue;fill-opacity:%s;\"/>\n", 
+				x, y, width, height, opacity);
+	}
+
+	static String filledCircle(double cx, double cy, double r, String opacity) {
+		return String.format("<circle cx=\"%f\" cy=\"%f\" r=\"%f\" style=\"stroke:red;stroke-width:1;fill:red;fill-opacity:%s;\"/>\n", cx, cy, r, opacity);
+	}
+
+	static String textStart(double x, int y, String fill) {
+		return String.format("<text x=\"%f\" y=\"%d\" style=\"fill: %s; stroke: none\">", x, y, fill);
+	}
+
+	static String text(double x, int y, String fill, String text) {
+		return textStart(x, y, fill) + text + "</text>\n";
+	}
+
+	/**
+	 * @param title - frame title
+	 * @return the number of buffer bytes needed to render a frame with the given title
+	 */
+	int frameBytes(byte[] title) {
+		return maxFrameBytes + 2 * title.length;
+	}
+
+	/**
+	 * @param minBytes - minimum capacity
+	 * @return the cleared render buffer of this thread, with at least the given capacity
+	 */
+	static ByteBuffer buffer(int minBytes) {
+		ByteBuffer buffer = buffers.get();
+		if (buffer.capacity() < minBytes) {
+			buffer = ByteBuffer.allocate(Integer.highestOneBit(minBytes - 1) << 1);
+			buffers.set(buffer);
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	static void putInt(ByteBuffer out, int value) {
+		if (value < 0) {
+			if (value == Integer.MIN_VALUE) {
+				out.put(bytes(String.valueOf(value)));
+				return;
+			}
+			out.put((byte) '-');
+			value = -value;
+		}
+		int divisor = 1;
+		while (divisor <= value / 10)
+			divisor *= 10;
+		for (; divisor > 0; divisor /= 10)
+			out.put((byte) ('0' + value / divisor % 10));
+	}
+
+	void putHeader(ByteBuffer out, byte[] start, byte[] title) {
+		out.put(start).put(title).put(TITLE_END).put(title).put(DESC_END);
+	}
+
+	/**
+	 * Render a frame of a state as drawn by PPView.exportSVG, with highlights in the given order.
+	 * @param state - state of a board of this renderer's size
+	 * @param title - UTF-8 frame title
+	 * @param highlightPos - positions to highlight, each given at most once
+	 * @param numHighlights - number of positions of highlightPos to highlight
+	 * @param out - buffer with at least frameBytes(title) bytes remaining
+	 */
+	void renderState(PPState state, byte[] title, int[] highlightPos, int numHighlights, ByteBuffer out) {
+		out.put(PROLOG);
+		putSVG(state, title, highlightPos, numHighlights, out);
+	}
+
+	/**
+	 * Render the svg element of a frame of a state, without the XML prolog.
+	 */
+	void putSVG(PPState state, byte[] title, int[] highlightPos, int numHighlights, ByteBuffer out) {
+		checkSize(state);
+		putHeader(out, stateStart, title);
+		putHighlights(out, highlightPos, numHighlights);
+		out.put(walls);
+		putFish(out, state);
+		putMarks(out, state);
+		out.put(labels);
+		putScores(out, state);
+		out.put(SVG_END);
+	}
+
+	void putHighlights(ByteBuffer out, int[] highlightPos, int numHighlights) {
+		for (int i = 0; i < numHighlights; i++)
+			out.put(highlights[highlightPos[i]]);
+	}
+
+	/**
+	 * @param state - state to render
+	 * @throws IllegalArgumentException if the state is not of this renderer's board size
+	 */
+	void checkSize(PPState state) {
+		if (state.getSize() != size)
+			throw new IllegalArgumentException("Cannot render a board of size " + state.getSize() + " with a renderer of size " + size);
+	}
+
+	/**
+	 * Render the initial fish numbers of all positions.
+	 */
+	void putFish(ByteBuffer out, PPState state) {
+		int[] initGrid = state.initGrid;
+		for (int r = size - 1; r >= 0; r--)
+			for (int pos = r * size; pos < (r + 1) * size; pos++) {
+				out.put(fishTextStarts[pos]);
+				putInt(out, initGrid[pos]);
+				out.put(TEXT_END);
+			}
+	}
+
+	/**
+	 * Render the penguins and the blocked positions scored by each player.
+	 */
+	void putMarks(ByteBuffer out, PPState state) {
+		int[] scoredGrid = state.scoredGrid, grid = state.grid;
+		for (int r = size - 1; r >= 0; r--)
+			for (int pos = r * size; pos < (r + 1) * size; pos++) {
+				if (scoredGrid[pos] == PPState.SQUARE)
+					out.put(grid[pos] == PPState.BLOCKED ? squareBlockedMarks[pos] : squareMarks[pos]);
+				if (scoredGrid[pos] == PPState.CIRCLE)
+					out.put(grid[pos] == PPState.BLOCKED ? circleBlockedMarks[pos] : circleMarks[pos]);
+			}
+	}
+
+	/**
+	 * Render the scores and the player to move below the board.
+	 */
+	void putScores(ByteBuffer out, PPState state) {
+		out.put(squareScoreStart);
+		putInt(out, state.score[0]);
+		out.put(TEXT_END).put(circleScoreStart);
+		putInt(out, state.score[1]);
+		out.put(TEXT_END).put(toPlayMarks[state.currentPlayer == PPState.SQUARE ? 0 : 1]);
+	}
+
+	/**
+	 * Render a board as drawn by PaperPenguins.toFile.
+	 * @param grid - fish numbers by row and column, with row 0 drawn at the bottom
+	 * @param title - UTF-8 frame title
+	 * @param out - buffer with at least frameBytes(title) bytes remaining
+	 */
+	void renderBoard(int[][] grid, byte[] title, ByteBuffer out) {
+		out.put(PROLOG);
+		putHeader(out, boardStart, title);
+		out.put(walls);
+		for (int r = size - 1; r >= 0; r--)
+			for (int c = 0; c < size; c++) {
+				out.put(fishTextStarts[r * size + c]);
+				putInt(out, grid[r][c]);
+				out.put(TEXT_END);
+			}
+		out.put(labels).put(boardEnd);
+	}
+
+	/**
+	 * @param fileName - file name
+	 * @return a channel writing a new file
+	 */
+	static FileChannel create(String fileName) throws IOException {
+		return FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Write the contents of a buffer to a channel and clear the buffer.
+	 */
+	static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * Write a buffer to a new file.
+	 */
+	static void writeFile(String fileName, ByteBuffer buffer) throws IOException {
+		try (FileChannel channel = create(fileName)) {
+			drain(buffer, channel);
+		}
+	}
+
+	/**
+	 * Set the given array to the positions of a play in position order.
+	 * @param move - packed play
+	 * @param positions - array of at least two elements to receive the positions
+	 * @return the number of positions of the play: 0 for a pass, 1 for a placement, or 2
+	 */
+	static int movePositions(int move, int[] positions) {
+		int srcPos = PPState.moveSrcPos(move), destPos = PPState.moveDestPos(move);
+		int n = 0;
+		if (srcPos >= 0 && srcPos < destPos)
+			positions[n++] = srcPos;
+		if (destPos >= 0)
+			positions[n++] = destPos;
+		if (srcPos > destPos)
+			positions[n++] = srcPos;
+		return n;
+	}
+
+	/**
+	 * Render the opening of the animation group of frame ply of a game.
+	 */
+	void putFrameStart(ByteBuffer out, int ply, int numMoves, int frameMillis) {
+		out.put(FRAME_START);
+		putInt(out, ply * frameMillis);
+		if (ply < numMoves) {
+			out.put(FRAME_DURATION);
+			putInt(out, frameMillis);
+			out.put(FRAME_TIMING_END);
+		}
+		else
+			out.put(LAST_FRAME_TIMING_END);
+	}
+
+	/**
+	 * Write one animated SVG file of a game, titled with the file name, that shows each state of the game for the given time and
+	 * then stays on the final state.  The board, fish numbers, and labels are drawn once.  Each state is a group of penguin and
+	 * scored position marks, scores, and player to move, made visible in its turn by an SVG set animation, and the positions of
+	 * the play that led to it are highlighted by a group under the board.  The game is replayed once, state by state, and the
+	 * file is written whenever this thread's buffer cannot hold another frame.
+	 * @param fileName - SVG file name
+	 * @param record - game record
+	 * @param frameMillis - milliseconds each state is shown
+	 * @return the number of frames, one more than the number of plays
+	 * @throws IOException if the file cannot be written
+	 */
+	public int writeAnimation(String fileName, PPGameRecord record, int frameMillis) throws IOException {
+		byte[] title = bytes(fileName);
+		int numMoves = record.numMoves;
+		PPState state = record.start();
+		checkSize(state);
+		int[] highlightPos = new int[2];
+		try (FileChannel channel = create(fileName)) {
+			ByteBuffer buffer = buffer(Math.max(BUFFER_BYTES, frameBytes(title)));
+			buffer.put(PROLOG);
+			putHeader(buffer, stateStart, title);
+			for (int ply = 1; ply <= numMoves; ply++) {
+				int numHighlights = movePositions(record.moves[ply - 1], highlightPos);
+				if (numHighlights == 0)
+					continue;
+				if (buffer.remaining() < maxFrameBytes)
+					drain(buffer, channel);
+				putFrameStart(buffer, ply, numMoves, frameMillis);
+				putHighlights(buffer, highlightPos, numHighlights);
+				buffer.put(FRAME_END);
+			}
+			buffer.put(walls);
+			putFish(buffer, state);
+			buffer.put(labels);
+			for (int ply = 0; ply <= numMoves; ply++) {
+				if (ply > 0)
+					state.makeMove(PPState.moveSrcPos(record.moves[ply - 1]), PPState.moveDestPos(record.moves[ply - 1]));
+				if (buffer.remaining() < maxFrameBytes)
+					drain(buffer, channel);
+				putFrameStart(buffer, ply, numMoves, frameMillis);
+				putMarks(buffer, state);
+				putScores(buffer, state);
+				buffer.put(FRAME_END);
+			}
+			buffer.put(SVG_END);
+			drain(buffer, channel);
+		}
+		return numMoves + 1;
+	}
+
+	/**
+	 * Write one HTML file of a game with the frame of each state (as drawn by PPView.exportSVG, with the play that led to it
+	 * highlighted) as inline SVG, shown one at a time with previous and next buttons or the left and right arrow keys.  The game
+	 * is replayed once, state by state, and the file is written whenever this thread's buffer cannot hold another frame.
+	 * @param fileName - HTML file name
+	 * @param record - game record
+	 * @return the number of frames, one more than the number of plays
+	 * @throws IOException if the file cannot be written
+	 */
+	public int writePager(String fileName, PPGameRecord record) throws IOException {
+		int numMoves = record.numMoves;
+		try (FileChannel channel = create(fileName)) {
+			ByteBuffer buffer = buffer(Math.max(BUFFER_BYTES, frameBytes(bytes(fileName))));
+			buffer.put(PAGER_START).put(bytes(fileName)).put(PAGER_TITLE_END);
+			PPState state = record.start();
+			int[] highlightPos = new int[2];
+			for (int ply = 0; ply <= numMoves; ply++) {
+				int numHighlights = 0;
+				if (ply > 0) {
+					int move = record.moves[ply - 1];
+					state.makeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+					numHighlights = movePositions(move, highlightPos);
+				}
+				byte[] title = bytes("ply " + ply);
+				if (buffer.remaining() < frameBytes(title))
+					drain(buffer, channel);
+				buffer.put(PAGER_FRAME_START);
+				putSVG(state, title, highlightPos, numHighlights, buffer);
+				buffer.put(PAGER_FRAME_END);
+			}
+			buffer.put(PAGER_END);
+			drain(buffer, channel);
+		}
+		return numMoves + 1;
+	}
+
+	/**
+	 * Write an SVG file of a state as drawn by PPView.exportSVG, titled with the file name.
+	 * @param fileName - SVG file name
+	 * @param state - state of a board of this renderer's size
+	 * @param highlightPos - positions to highlight, each given at most once
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeState(String fileName, PPState state, int[] highlightPos) throws IOException {
+		byte[] title = bytes(fileName);
+		ByteBuffer buffer = buffer(frameBytes(title));
+		renderState(state, title, highlightPos, highlightPos.length, buffer);
+		writeFile(fileName, buffer);
+	}
+
+	/**
+	 * Write an SVG file of a board as drawn by PaperPenguins.toFile, titled with the file name.
+	 * @param fileName - SVG file name
+	 * @param grid - fish numbers by row and column of a board of this renderer's size
+	 * @throws IOException if the file cannot be written
+	 */
+	public void writeBoard(String fileName, int[][] grid) throws IOException {
+		byte[] title = bytes(fileName);
+		ByteBuffer buffer = buffer(frameBytes(title));
+		renderBoard(grid, title, buffer);
+		writeFile(fileName, buffer);
+	}
+
+	/**
+	 * Write a ZIP archive of the SVG frames of a game: the first state, then the state after each play with the play's 
+	 * positions highlighted, named and titled framePrefix followed by the three-digit ply number and ".svg".  Each frame is
+	 * rendered into this thread's buffer and deflated into its archive entry, and the archive is written in BUFFER_BYTES blocks.
+	 * @param archiveName - ZIP file name
+	 * @param record - game record
+	 * @param framePrefix - frame file name prefix
+	 * @return the number of frames, one more than the number of plays
+	 * @throws IOException if the archive cannot be written
+	 */
+	public int writeGame(String archiveName, PPGameRecord record, String framePrefix) throws IOException {
+		int numMoves = record.numMoves;
+		PPState state = record.start();
+		try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archiveName), BUFFER_BYTES))) {
+			zip.setLevel(Deflater.BEST_SPEED);
+			int[] highlightPos = new int[2];
+			int numHighlights = 0;
+			for (int ply = 0; ply <= numMoves; ply++) {
+				if (ply > 0) {
+					int move = record.moves[ply - 1];
+					state.makeMove(PPState.moveSrcPos(move), PPState.moveDestPos(move));
+					numHighlights = movePositions(move, highlightPos);
+				}
+				String name = String.format("%s%03d.svg", framePrefix, ply);
+				byte[] title = bytes(name);
+				ByteBuffer buffer = buffer(frameBytes(title));
+				renderState(state, title, highlightPos, numHighlights, buffer);
+				zip.putNextEntry(new ZipEntry(name));
+				zip.write(buffer.array(), 0, buffer.position());
+				zip.closeEntry();
+			}
+			return numMoves + 1;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+/**
+ * PPSearchStats - statistics of PPStateMinimax searches.  Assign an instance to PPStateMinimax.stats to collect them; with
+ * stats null (the default), search only skips a few null checks.
+ *
+ * Fields describe the last search (one getPlay call) of the main search thread and are written by that thread.  Totals over
+ * all searches are published at the end of each search for other threads, e.g. JMX clients (see registerMBean).
+ */
+public class PPSearchStats implements PPSearchStatsMBean {
+
+	/**
+	 * number of plies for which per-ply statistics are kept, enough for a search to the end of a game on any board size
+	 */
+	static final int MAX_PLY = 2 * PPGeometry.MAX_SIZE * PPGeometry.MAX_SIZE + 1;
+
+	// Last search
+	long nodes; // search nodes of the main search thread
+	long helperNodes; // search nodes of Lazy SMP helper threads
+	long leafEvals; // heuristic evaluations at the depth limit
+	long interiorNodes; // states whose moves were searched
+	long movesGenerated; // moves generated at interior states, counting a pass as one move
+	long ttProbes, ttHits, ttCutoffs;
+	long[] plyNodes = new long[MAX_PLY]; // search nodes by ply from the root
+	long[] plyCutoffs = new long[MAX_PLY]; // beta cutoffs by ply from the root
+
+	// Iterations of the last search
+	int numIterations;
+	int[] iterationDepth = new int[MAX_PLY];
+	long[] iterationNodes = new long[MAX_PLY];
+	long[] iterationNanos = new long[MAX_PLY];
+	int[] iterationScore = new int[MAX_PLY];
+	boolean[] iterationAborted = new boolean[MAX_PLY];
+
+	/**
+	 * principal variation of the last completed iteration as packed moves (see PPState.packMove), as far as it can be followed
+	 * through the transposition table
+	 */
+	int[] principalVariation = new int[MAX_PLY];
+	int principalVariationLength;
+	long searchNanos;
+
+	// Totals over all searches
+	volatile long totalSearches, totalNodes, totalLeafEvals, totalCutoffs, totalTTProbes, totalTTHits, totalSearchNanos;
+	volatile int lastCompletedDepth;
+
+	/**
+	 * Clear the statistics of the last search.
+	 */
+	void beginSearch() {
+		nodes = helperNodes = leafEvals = interiorNodes = movesGenerated = 0;
+		ttProbes = ttHits = ttCutoffs = 0;
+		for (int ply = 0; ply < MAX_PLY; ply++)
+			plyNodes[ply] = plyCutoffs[ply] = 0;
+		numIterations = 0;
+		principalVariationLength = 0;
+		searchNanos = 0;
+	}
+
+	/**
+	 * Record a search iteration.
+	 * @param depth - iteration depth
+	 * @param nodes - search nodes of the main search thread so far
+	 * @param nanos - nanoseconds since the start of the search
+	 * @param score - root negamax score
+	 * @param aborted - whether the iteration ran out of time
+	 */
+	void endIteration(int depth, long nodes, long nanos, int score, boolean aborted) {
+		iterationDepth[numIterations] = depth;
+		iterationNodes[numIterations] = nodes;
+		iterationNanos[numIterations] = nanos;
+		iterationScore[numIterations] = score;
+		iterationAborted[numIterations] = aborted;
+		numIterations++;
+	}
+
+	/**
+	 * Publish the totals of the last search.
+	 */
+	void endSearch() {
+		long cutoffs = 0;
+		for (long plyCutoff : plyCutoffs)
+			cutoffs += plyCutoff;
+		totalSearches++;
+		totalNodes += nodes + helperNodes;
+		totalLeafEvals += leafEvals;
+		totalCutoffs += cutoffs;
+		totalTTProbes += ttProbes;
+		totalTTHits += ttHits;
+		totalSearchNanos += searchNanos;
+		int completedDepth = 0;
+		for (int i = 0; i < numIterations; i++)
+			if (!iterationAborted[i])
+				completedDepth = iterationDepth[i];
+		lastCompletedDepth = completedDepth;
+	}
+
+	/**
+	 * @return the average number of moves searched from each interior state of the last search
+	 */
+	public double getBranchingFactor() {
+		return (interiorNodes == 0) ? 0 : (double) movesGenerated / interiorNodes;
+	}
+
+	/**
+	 * @return the ratio of the nodes of the last completed iteration to those of the iteration before it, or 0 if fewer than two
+	 * iterations completed
+	 */
+	public double getEffectiveBranchingFactor() {
+		int last = numIterations - 1;
+		while (last >= 0 && iterationAborted[last])
+			last--;
+		if (last < 1)
+			return 0;
+		long lastNodes = iterationNodes[last] - iterationNodes[last - 1];
+		long previousNodes = iterationNodes[last - 1] - ((last >= 2) ? iterationNodes[last - 2] : 0);
+		return (previousNodes == 0) ? 0 : (double) lastNodes / previousNodes;
+	}
+
+	/**
+	 * @return the principal variation of the last search in Chess notation
+	 */
+	public String getPrincipalVariation() {
+		StringBuilder sb = new StringBuilder();
+		PPState notation = new PPState();
+		for (int i = 0; i < principalVariationLength; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(notation.moveToString(PPState.moveSrcPos(principalVariation[i]), PPState.moveDestPos(principalVariation[i])));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return a multi-line report of the last search
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("nodes %d (+%d helper), leaf evals %d, branching factor %.2f (effective %.2f)\n", nodes, helperNodes, leafEvals,
+				getBranchingFactor(), getEffectiveBranchingFactor()));
+		sb.append(String.format("TT probes %d, hits %d (%.1f%%), cutoffs %d\n", ttProbes, ttHits, 100.0 * ttHits / Math.max(1, ttProbes), ttCutoffs));
+		sb.append("ply  nodes  cutoffs:");
+		for (int ply = 0; ply < MAX_PLY && plyNodes[ply] > 0; ply++)
+			sb.append(String.format(" %d:%d/%d", ply, plyNodes[ply], plyCutoffs[ply]));
+		sb.append('\n');
+		for (int i = 0; i < numIterations; i++)
+			sb.append(String.format("depth %2d: %10d nodes, %8.3f sec, score %d%s\n", iterationDepth[i], iterationNodes[i], iterationNanos[i] / 1e9,
+					iterationScore[i], iterationAborted[i] ? " (aborted)" : ""));
+		sb.append(String.format("principal variation: %s\n", getPrincipalVariation()));
+		sb.append(String.format("search time %.3f sec", searchNanos / 1e9));
+		return sb.toString();
+	}
+
+	/**
+	 * Register these statistics with the platform MBean server.
+	 * @param name - MBean object name, e.g. "PaperPenguins:type=PPSearchStats,name=player1"
+	 */
+	public void registerMBean(String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Cannot register MBean " + name, e);
+		}
+	}
+
+	public long getTotalSearches() {
+		return totalSearches;
+	}
+
+	public long getTotalNodes() {
+		return totalNodes;
+	}
+
+	public long getTotalLeafEvals() {
+		return totalLeafEvals;
+	}
+
+	public long getTotalCutoffs() {
+		return totalCutoffs;
+	}
+
+	public long getTotalTTProbes() {
+		return totalTTProbes;
+	}
+
+	public long getTotalTTHits() {
+		return totalTTHits;
+	}
+
+	public double getTotalSearchSeconds() {
+		return totalSearchNanos / 1e9;
+	}
+
+	public double getNodesPerSecond() {
+		long nanos = totalSearchNanos;
+		return (nanos == 0) ? 0 : totalNodes / (nanos / 1e9);
+	}
+
+	public int getLastCompletedDepth() {
+		return lastCompletedDepth;
+	}
+}
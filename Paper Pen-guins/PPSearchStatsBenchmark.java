@@ -0,0 +1,53 @@
+/**
+ * PPSearchStatsBenchmark - measures the cost of collecting PPSearchStats by searching the same positions to a fixed depth
+ * without and with statistics, then prints the statistics report of the first position and the JMX totals.
+ *
+ * Positions are set up as in PPTranspositionBenchmark.
+ *
+ * Usage: java PPSearchStatsBenchmark [searchDepth [numPositions [randomPlies [rounds]]]]
+ */
+public class PPSearchStatsBenchmark {
+
+	public static void main(String[] args) {
+		int searchDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		System.out.printf("depth %d, %d positions after %d random plies, best of %d rounds\n", searchDepth, numPositions, randomPlies, rounds);
+		PPSearchStats stats = new PPSearchStats();
+		stats.registerMBean("PaperPenguins:type=PPSearchStats,name=benchmark");
+		long[] bestNanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+		long[] nodes = new long[2];
+		for (int round = 0; round < rounds; round++)
+			for (int enabled = 0; enabled < 2; enabled++) {
+				long nanos = 0;
+				nodes[enabled] = 0;
+				for (int i = 0; i < numPositions; i++) {
+					PPStateMinimax player = new PPStateMinimax(searchDepth);
+					player.stats = (enabled == 1) ? stats : null;
+					PPTranspositionBenchmark.setUpPosition(player, i, randomPlies);
+					long startNanos = System.nanoTime();
+					player.getPlay(Long.MAX_VALUE);
+					nanos += System.nanoTime() - startNanos;
+					nodes[enabled] += player.nodeCount;
+				}
+				bestNanos[enabled] = Math.min(bestNanos[enabled], nanos);
+			}
+		System.out.println("stats          nodes     sec   nodes/sec");
+		for (int enabled = 0; enabled < 2; enabled++)
+			System.out.printf("%-8s  %10d  %6.2f  %10.0f\n", (enabled == 1) ? "enabled" : "disabled", nodes[enabled], bestNanos[enabled] / 1e9,
+					nodes[enabled] / (bestNanos[enabled] / 1e9));
+		System.out.printf("overhead: %.1f%%\n", 100.0 * (bestNanos[1] - bestNanos[0]) / bestNanos[0]);
+
+		PPStateMinimax player = new PPStateMinimax(searchDepth);
+		player.stats = stats;
+		PPTranspositionBenchmark.setUpPosition(player, 0, randomPlies);
+		player.getPlay(Long.MAX_VALUE);
+		System.out.println();
+		System.out.println(stats);
+		System.out.println();
+		System.out.printf("totals: %d searches, %d nodes, %d leaf evals, %d cutoffs, %d TT probes, %d TT hits, %.0f nodes/sec\n",
+				stats.getTotalSearches(), stats.getTotalNodes(), stats.getTotalLeafEvals(), stats.getTotalCutoffs(), stats.getTotalTTProbes(),
+				stats.getTotalTTHits(), stats.getNodesPerSecond());
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ * PPSearchStatsMBean - JMX management interface of PPSearchStats: totals over all searches since creation.
+ */
+public interface PPSearchStatsMBean {
+
+	long getTotalSearches();
+
+	long getTotalNodes();
+
+	long getTotalLeafEvals();
+
+	long getTotalCutoffs();
+
+	long getTotalTTProbes();
+
+	long getTotalTTHits();
+
+	double getTotalSearchSeconds();
+
+	double getNodesPerSecond();
+
+	int getLastCompletedDepth();
+}
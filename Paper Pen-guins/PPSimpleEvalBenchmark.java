@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * PPSimpleEvalBenchmark - checks that PPState.simpleEval, with its territory term factored into PPState.territory, returns the
+ * values of the original single-method evaluation and is no slower.  The original is kept here as referenceEval.
+ *
+ * Positions are the states of seeded random games on the PPState.SIZE board.  Each evaluation is timed over all positions in
+ * the given number of rounds, interleaved with the rounds of the other, and the nanoseconds per evaluation of the fastest round of each are reported, so that JIT warm-up and
+ * interruptions do not count.
+ *
+ * Usage: java PPSimpleEvalBenchmark [numGames [rounds]]
+ */
+public class PPSimpleEvalBenchmark {
+
+	/**
+	 * the evaluation of PPState.simpleEval before its territory term was factored out
+	 * @param state - state to evaluate
+	 * @return simple board evaluation according to Lorentz's scheme
+	 */
+	static int referenceEval(PPState state) {
+		long empty = ~state.occupiedBits;
+		long squareReached = state.pieceBits[0], circleReached = state.pieceBits[1];
+		long squareFrontier = squareReached, circleFrontier = circleReached;
+		long squareCloser = 0, circleCloser = 0, tied = 0;
+		while ((squareFrontier | circleFrontier) != 0) {
+			squareFrontier = state.queenMoves(squareFrontier, empty) & ~squareReached;
+			circleFrontier = state.queenMoves(circleFrontier, empty) & ~circleReached;
+			squareCloser |= squareFrontier & ~circleReached & ~circleFrontier;
+			circleCloser |= circleFrontier & ~squareReached & ~squareFrontier;
+			tied |= squareFrontier & circleFrontier;
+			squareReached |= squareFrontier;
+			circleReached |= circleFrontier;
+		}
+		int count = state.score[0] - state.score[1] + state.fishSum(squareCloser) - state.fishSum(circleCloser);
+		if (PPState.DISTANCE_TIE_GOES_TO_CURRENT_PLAYER)
+			count += ((state.currentPlayer == PPState.SQUARE) ? 1 : -1) * Long.bitCount(tied);
+		return (state.currentPlayer == PPState.SQUARE) ? count : -count;
+	}
+
+	public static void main(String[] args) {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		// Collect the positions of random games where the game is not over
+		ArrayList<PPState> positions = new ArrayList<PPState>();
+		for (long seed = 0; seed < numGames; seed++) {
+			PPState state = new PPState();
+			state.init(seed);
+			Random random = new Random(seed);
+			while (!state.gameOver()) {
+				positions.add(new PPState(state));
+				state.computeLegalMoves();
+				if (state.legalMoveCount == 0)
+					state.makeMove(-1, -1);
+				else {
+					int i = random.nextInt(state.legalMoveCount);
+					state.makeMove(state.legalMoves[0][i], state.legalMoves[1][i]);
+				}
+			}
+		}
+		PPState[] states = positions.toArray(new PPState[positions.size()]);
+
+		int mismatches = 0;
+		for (PPState state : states)
+			if (state.simpleEval() != referenceEval(state))
+				mismatches++;
+		System.out.printf("%d positions of %d random games: %d mismatches\n", states.length, numGames, mismatches);
+
+		long simpleSum = 0, referenceSum = 0, simpleNanos = Long.MAX_VALUE, referenceNanos = Long.MAX_VALUE;
+		for (int round = 0; round < 2 * rounds; round++) {
+			long startNanos = System.nanoTime();
+			if (round % 4 == 0 || round % 4 == 3) { // alternate which evaluation is timed first
+				for (PPState state : states)
+					simpleSum += state.simpleEval();
+				simpleNanos = Math.min(simpleNanos, System.nanoTime() - startNanos);
+			}
+			else {
+				for (PPState state : states)
+					referenceSum += referenceEval(state);
+				referenceNanos = Math.min(referenceNanos, System.nanoTime() - startNanos);
+			}
+		}
+		System.out.printf("simpleEval %.1f ns per evaluation, reference %.1f ns per evaluation (checksums %d, %d)\n",
+				(double) simpleNanos / states.length, (double) referenceNanos / states.length, simpleSum, referenceSum);
+		if (mismatches > 0)
+			System.exit(1);
+	}
+}
@@ -1,4 +1,5 @@
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -10,6 +11,9 @@ import java.util.Random;
  * Note: In the code below, a grid "position" is represented as a single integer in zero-based row-major form, 
  * i.e. for row r and column c on a SIZE-by-SIZE board, the position p is (r * SIZE + c).  
  * For position p, r = p / SIZE; c = p % SIZE; 
+ *
+ * A state plays the board of its PPGeometry, SIZE by default.  Boards of at most 64 positions are played with bitboards 
+ * (bit p for position p); larger boards are played by walking the lines of play over the grid.
  */
 public class PPState implements PPPlayer {
 	/**
@@ -28,12 +32,12 @@ public class PPState implements PPPlayer {
 	public static final int CIRCLE = -2;
 	
 	/**
-	 * dimensions of grid
+	 * default dimensions of grid
 	 */
 	public static final int SIZE = 8;
 	
 	/**
-	 * number of positions on the board
+	 * number of positions on the default board
 	 */
 	public static final int NUM_POS = SIZE * SIZE;
 	
@@ -48,15 +52,25 @@ public class PPState implements PPPlayer {
 	public static final int TOTAL_PIECES = 2 * NUM_PLAYER_PIECES;
 	
 	/**
-	 * the maximum number of legal moves a piece can have
+	 * the maximum number of legal moves a piece can have on the default board
 	 */
 	public static final int MAX_MOVES_PER_PIECE;
 	
 	/**
-	 * the maximum number of legal moves per turn
+	 * the maximum number of legal moves per turn on the default board
 	 */
 	public static final int MAX_LEGAL_MOVES;
 	
+	/**
+	 * a packed move value (see packMove) that represents no move
+	 */
+	public static final int NO_MOVE = -1;
+	
+	/**
+	 * the packed move value of a pass
+	 */
+	public static final int PASS_MOVE = 0;
+	
 	/**
 	 * character representing a square piece
 	 */
@@ -72,23 +86,103 @@ public class PPState implements PPPlayer {
 	 */
 	public static final char BLOCKED_CHAR = '#'; // unicode black square = 9632
 	
-	protected static final int[] dRows = {0, -1, -1, -1, 0, 1, 1, 1};
-	protected static final int[] dCols = {1, 1, 0, -1, -1, -1, 0, 1};	
-	protected static int[][][] lines;
-	protected static int[][] gridDistance = new int[2][NUM_POS];
-	protected static final int UNREACHABLE = NUM_POS;
-	protected static int[] squareSearchQueue = new int[NUM_POS], circleSearchQueue = new int[NUM_POS];
+	protected static final int[] dRows = PPGeometry.dRows;
+	protected static final int[] dCols = PPGeometry.dCols;	
+	
+	/**
+	 * the shared lines of play, bitboard tables, and Zobrist keys of the default board
+	 */
+	protected static final PPGeometry GEOMETRY = PPGeometry.forSize(SIZE);
+	protected static final int UNREACHABLE = Integer.MAX_VALUE;
 	protected static final boolean DISTANCE_TIE_GOES_TO_CURRENT_PLAYER = false;
-	protected static Random random = new Random(0);
-	protected static int[] play = new int[2];
-	protected static int[] initGrid = new int[NUM_POS];
-	protected static int[] scoredGrid = new int[NUM_POS];
+	
+	/**
+	 * the board of this state: its lines of play, bitboard tables (if it has at most 64 positions), and Zobrist keys
+	 */
+	protected final PPGeometry geometry;
+	
+	/**
+	 * dimensions of grid, and number of positions
+	 */
+	protected final int size, numPos;
+	
+	/**
+	 * the maximum number of legal moves per turn
+	 */
+	protected final int maxLegalMoves;
+	
+	/**
+	 * whether this state is played with bitboards, i.e. the board has at most 64 positions
+	 */
+	protected final boolean bitboards;
+	
+	protected final int[][][] lines;
+	
+	// Bitboards: bit p of a long represents grid position p (null tables for boards of more than 64 positions)
+	protected final long[][] rays; // rays[dir][pos] - all positions along direction dir from pos (excluding pos)
+	protected final long[] adjacent; // positions one queen step away from pos
+	protected final int[] dirShifts; // bit rotation for one step in each direction
+	protected final long[] dirAvoidWrap; // positions that can be reached by one step in each direction
+	
+	// Zobrist keys (see PPGeometry.zobrist)
+	protected final long[][] zobrist;
+	protected final long zobristCircleToPlay;
+	
+	/**
+	 * number of longs in the compact encoding of a state (see encode)
+	 */
+	public static final int ENCODED_LONGS = 5;
+	
+	/**
+	 * number of bytes in the compact encoding of a state
+	 */
+	public static final int ENCODED_BYTES = ENCODED_LONGS * Long.BYTES;
+
+
+	/**
+	 * bitboard of positions that cannot be moved onto, i.e. blocked positions and positions occupied by pieces.  The bitboards 
+	 * are maintained only for boards of at most 64 positions.
+	 */
+	protected long occupiedBits;
+	
+	/**
+	 * bitboards of piece positions indexed by SQUARE(0)/CIRCLE(1)
+	 */
+	protected long[] pieceBits = new long[2];
+	
+	/**
+	 * bitboards of initial positions of 1, 2, and 3 fish indexed by fish value - 1
+	 */
+	protected long[] fishBits = new long[3];
+	
+	/**
+	 * Zobrist hash of the grid contents, the scoring player of each blocked position, and the player to move, maintained 
+	 * incrementally by makeMove and unmakeMove
+	 */
+	protected long hash;
+	
+	// Per-game and per-search working storage.  Geometries are immutable, so distinct PPState objects may be used 
+	// concurrently from different threads.
+	protected int[][] gridDistance;
+	protected int[] distanceQueue; // breadth-first search queue of computeBoardDistances on boards without bitboards
+	protected Random random = new Random(0);
+	protected int[] play = new int[2];
+	
+	/**
+	 * initial grid contents before any pieces were placed
+	 */
+	protected int[] initGrid;
+	
+	/**
+	 * positions scored by SQUARE or CIRCLE, or 0 if not yet scored
+	 */
+	protected int[] scoredGrid;
 
 
 	/**
 	 * grid pieces indexed by row * columns + column (row-major ordering)
 	 */
-	protected int[] grid = new int[NUM_POS]; 
+	protected int[] grid; 
 	
 	/**
 	 * position of pieces indexed by SQUARE(0)/CIRCLE(1), zero-based amazon piece number
@@ -103,7 +197,9 @@ public class PPState implements PPPlayer {
 	/**
 	 * legal moves
 	 */
-	public int[][] legalMoves = new int[2][MAX_LEGAL_MOVES]; // first dimension: srcPos [0], destPos[0], second dimension: legal move number; 
+	public int[][] legalMoves; // first dimension: srcPos [0], destPos[0], second dimension: legal move number; 
+	
+	protected int[] legalMoveList; // packed legal moves
 	
 	/**
 	 * Current player, initially <code>PPState.SQUARE</code>
@@ -125,7 +221,36 @@ public class PPState implements PPPlayer {
 	 */
 	protected int[] score = new int[2];
 	
+	/**
+	 * Create a state of the default SIZE board.
+	 */
 	public PPState() {
+		this(GEOMETRY);
+	}
+	
+	/**
+	 * @param geometry - geometry of the board, e.g. PPGeometry.forSize(size)
+	 */
+	public PPState(PPGeometry geometry) {
+		this.geometry = geometry;
+		size = geometry.size;
+		numPos = geometry.numPos;
+		maxLegalMoves = geometry.maxLegalMoves;
+		bitboards = geometry.bitboards;
+		lines = geometry.lines;
+		rays = geometry.rays;
+		adjacent = geometry.adjacent;
+		dirShifts = geometry.dirShifts;
+		dirAvoidWrap = geometry.dirAvoidWrap;
+		zobrist = geometry.zobrist;
+		zobristCircleToPlay = geometry.zobristCircleToPlay;
+		gridDistance = new int[2][numPos];
+		distanceQueue = new int[numPos];
+		initGrid = new int[numPos];
+		scoredGrid = new int[numPos];
+		grid = new int[numPos];
+		legalMoves = new int[2][maxLegalMoves];
+		legalMoveList = new int[maxLegalMoves];
 	}
 	
 	/**
@@ -133,79 +258,232 @@ public class PPState implements PPPlayer {
 	 * @param state - original state
 	 */
 	public PPState(PPState state) {
-		grid = state.grid.clone();
-		piecePositions = new int[2][];
-		piecePositions[0] = state.piecePositions[0].clone();
-		piecePositions[1] = state.piecePositions[1].clone();
-		legalMoves = new int[2][MAX_LEGAL_MOVES]; // don't copy contents, just reallocate
+		this(state.geometry);
+		copy(state); // legal moves are not copied
+	}
+	
+	/**
+	 * Copy the given state into this state without allocating.  Legal moves are not copied.
+	 * @param state - original state, of the same board size
+	 * @throws IllegalArgumentException if the state is of another board size
+	 */
+	public void copy(PPState state) {
+		if (state.geometry != geometry)
+			throw new IllegalArgumentException("Cannot copy a state of board size " + state.size + " to board size " + size);
+		System.arraycopy(state.grid, 0, grid, 0, numPos);
+		System.arraycopy(state.piecePositions[0], 0, piecePositions[0], 0, NUM_PLAYER_PIECES);
+		System.arraycopy(state.piecePositions[1], 0, piecePositions[1], 0, NUM_PLAYER_PIECES);
 		currentPlayer = state.currentPlayer;
 		moveDestPos = state.moveDestPos;
-		this.turnsTaken = state.turnsTaken;
+		turnsTaken = state.turnsTaken;
+		System.arraycopy(state.initGrid, 0, initGrid, 0, numPos);
+		System.arraycopy(state.scoredGrid, 0, scoredGrid, 0, numPos);
+		occupiedBits = state.occupiedBits;
+		hash = state.hash;
+		pieceBits[0] = state.pieceBits[0];
+		pieceBits[1] = state.pieceBits[1];
+		System.arraycopy(state.fishBits, 0, fishBits, 0, fishBits.length);
+		score[0] = state.score[0];
+		score[1] = state.score[1];
 	}
 	
-	static {
-		// Precompute all lines of play from each grid position
-		lines = new int[NUM_POS][][];
-		int maxMovesPerPiece = 0;
-		for (int i = 0; i < NUM_POS; i++) {
-			int row = i / SIZE;
-			int col = i % SIZE;
-			ArrayList<ArrayList<Integer>> lineLists = new ArrayList<ArrayList<Integer>>();
-			int movesPerPiece = 0;
-			for (int dir = 0; dir < 8; dir++) {
-				int currRow = row + dRows[dir];
-				int currCol = col + dCols[dir];
-				ArrayList<Integer> line = new ArrayList<Integer>();
-				while (currRow >= 0 && currRow < SIZE && currCol >= 0 && currCol < SIZE) {
-					line.add(currRow * SIZE + currCol);
-					movesPerPiece++;
-					currRow += dRows[dir];
-					currCol += dCols[dir];
+	/**
+	 * Encode this state in ENCODED_LONGS longs:
+	 * <ol>
+	 * <li>low bit of the initial fish value of each position (bit p for position p)</li>
+	 * <li>high bit of the initial fish value of each position</li>
+	 * <li>blocked positions</li>
+	 * <li>blocked positions scored by SQUARE (the rest were scored by CIRCLE)</li>
+	 * <li>piece positions in 6-bit fields, SQUARE pieces then CIRCLE pieces (bits 0-47), turns taken (bits 48-55), and whether 
+	 * CIRCLE is to play (bit 56)</li>
+	 * </ol>
+	 * Piece fields not yet placed are 0.  Legal moves are not encoded.  Only states of the default SIZE board are encoded.
+	 * @param code - array to receive the encoding
+	 * @param offset - index of the first long of the encoding
+	 * @throws IllegalStateException if the board is not of the default SIZE
+	 */
+	public void encode(long[] code, int offset) {
+		checkEncodable();
+		code[offset] = fishBits[0] | fishBits[2];
+		code[offset + 1] = fishBits[1] | fishBits[2];
+		long blockedBits = occupiedBits & ~(pieceBits[0] | pieceBits[1]);
+		code[offset + 2] = blockedBits;
+		long squareBlockedBits = 0;
+		for (long bits = blockedBits; bits != 0; bits &= bits - 1) {
+			int pos = Long.numberOfTrailingZeros(bits);
+			if (scoredGrid[pos] == SQUARE)
+				squareBlockedBits |= 1L << pos;
+		}
+		code[offset + 3] = squareBlockedBits;
+		code[offset + 4] = encodePieces();
+	}
+	
+	/**
+	 * Encode this state (see encode(long[], int)) at the current position of the given buffer in the buffer's byte order, 
+	 * advancing the position by ENCODED_BYTES.
+	 * @param buffer - buffer to receive the encoding
+	 * @throws IllegalStateException if the board is not of the default SIZE
+	 */
+	public void encode(ByteBuffer buffer) {
+		checkEncodable();
+		buffer.putLong(fishBits[0] | fishBits[2]);
+		buffer.putLong(fishBits[1] | fishBits[2]);
+		long blockedBits = occupiedBits & ~(pieceBits[0] | pieceBits[1]);
+		buffer.putLong(blockedBits);
+		long squareBlockedBits = 0;
+		for (long bits = blockedBits; bits != 0; bits &= bits - 1) {
+			int pos = Long.numberOfTrailingZeros(bits);
+			if (scoredGrid[pos] == SQUARE)
+				squareBlockedBits |= 1L << pos;
+		}
+		buffer.putLong(squareBlockedBits);
+		buffer.putLong(encodePieces());
+	}
+	
+	/**
+	 * @throws IllegalStateException if the board is not of the default SIZE, whose 64 positions the encoding assumes
+	 */
+	private void checkEncodable() {
+		if (geometry != GEOMETRY)
+			throw new IllegalStateException("Only states of board size " + SIZE + " are encoded");
+	}
+	
+	/**
+	 * @return the last long of the encoding of this state: piece positions, turns taken, and player to move
+	 */
+	private long encodePieces() {
+		long code = 0;
+		for (int player = 0; player < 2; player++)
+			for (int i = 0; i < NUM_PLAYER_PIECES; i++)
+				code |= (long) piecePositions[player][i] << (6 * (player * NUM_PLAYER_PIECES + i));
+		return code | (long) turnsTaken << 48 | ((currentPlayer == CIRCLE) ? 1L << 56 : 0);
+	}
+	
+	/**
+	 * Set this state from its encoding (see encode(long[], int)) without allocating.  The Zobrist hash and scores are recomputed.
+	 * Legal moves are not set.
+	 * @param code - array containing the encoding
+	 * @param offset - index of the first long of the encoding
+	 * @throws IllegalArgumentException if the encoding is not that of a state
+	 * @throws IllegalStateException if the board is not of the default SIZE
+	 */
+	public void decode(long[] code, int offset) {
+		checkEncodable();
+		decode(code[offset], code[offset + 1], code[offset + 2], code[offset + 3], code[offset + 4]);
+	}
+	
+	/**
+	 * Set this state from its encoding (see encode(long[], int)) at the current position of the given buffer in the buffer's 
+	 * byte order, advancing the position by ENCODED_BYTES.
+	 * @param buffer - buffer containing the encoding
+	 * @throws IllegalArgumentException if the encoding is not that of a state
+	 * @throws IllegalStateException if the board is not of the default SIZE
+	 */
+	public void decode(ByteBuffer buffer) {
+		checkEncodable();
+		decode(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+	}
+	
+	private void decode(long fishLowBits, long fishHighBits, long blockedBits, long squareBlockedBits, long pieceCode) {
+		if ((fishLowBits | fishHighBits) != -1L || (squareBlockedBits & ~blockedBits) != 0 || (pieceCode >>> 57) != 0)
+			throw new IllegalArgumentException("Invalid state encoding");
+		fishBits[0] = fishLowBits & ~fishHighBits;
+		fishBits[1] = fishHighBits & ~fishLowBits;
+		fishBits[2] = fishLowBits & fishHighBits;
+		turnsTaken = (int) (pieceCode >>> 48) & 0xFF;
+		currentPlayer = ((pieceCode & 1L << 56) != 0) ? CIRCLE : SQUARE;
+		// During placement, the player to move has placed turnsTaken / 2 pieces and the other player one more if turnsTaken is odd.
+		int currentPlaced = Math.min(NUM_PLAYER_PIECES, turnsTaken / 2);
+		int otherPlaced = Math.min(NUM_PLAYER_PIECES, (turnsTaken + 1) / 2);
+		pieceBits[0] = pieceBits[1] = 0;
+		for (int player = 0; player < 2; player++) {
+			int numPlaced = ((player == 0) == (currentPlayer == SQUARE)) ? currentPlaced : otherPlaced;
+			for (int i = 0; i < NUM_PLAYER_PIECES; i++) {
+				int pos = (int) (pieceCode >>> (6 * (player * NUM_PLAYER_PIECES + i))) & 0x3F;
+				piecePositions[player][i] = pos;
+				if (i < numPlaced) {
+					if (((blockedBits | pieceBits[0] | pieceBits[1]) & 1L << pos) != 0)
+						throw new IllegalArgumentException("Invalid state encoding");
+					pieceBits[player] |= 1L << pos;
 				}
-				if (!line.isEmpty())
-					lineLists.add(line);
+				else if (pos != 0)
+					throw new IllegalArgumentException("Invalid state encoding");
 			}
-			if (movesPerPiece > maxMovesPerPiece)
-				maxMovesPerPiece = movesPerPiece;
-			lines[i] = new int[lineLists.size()][];
-			for (int j = 0; j < lineLists.size(); j++) {
-				ArrayList<Integer> line = lineLists.get(j);
-				int lineLength = line.size();
-				lines[i][j] = new int[lineLength];
-				for (int k = 0; k < lineLength; k++)
-					lines[i][j][k] = line.get(k);
+		}
+		occupiedBits = blockedBits | pieceBits[0] | pieceBits[1];
+		score[0] = score[1] = 0;
+		hash = (currentPlayer == CIRCLE) ? zobristCircleToPlay : 0;
+		for (int pos = 0; pos < NUM_POS; pos++) {
+			long bit = 1L << pos;
+			int fish = ((fishLowBits & bit) != 0 ? 1 : 0) + ((fishHighBits & bit) != 0 ? 2 : 0);
+			initGrid[pos] = fish;
+			if ((occupiedBits & bit) == 0) {
+				grid[pos] = fish;
+				scoredGrid[pos] = 0;
+				hash ^= zobrist[pos][3 + fish];
+			}
+			else {
+				boolean square = ((squareBlockedBits | pieceBits[0]) & bit) != 0;
+				grid[pos] = ((blockedBits & bit) != 0) ? BLOCKED : square ? SQUARE : CIRCLE;
+				scoredGrid[pos] = square ? SQUARE : CIRCLE;
+				score[square ? 0 : 1] += fish;
+				hash ^= zobrist[pos][((blockedBits & bit) != 0 ? 2 : 0) + (square ? 1 : 0)];
 			}
 		}
-		MAX_MOVES_PER_PIECE = maxMovesPerPiece;
-		MAX_LEGAL_MOVES = NUM_PLAYER_PIECES * MAX_MOVES_PER_PIECE;
+	}
+	
+	static {
+		// Lines of play, bitboard tables, and Zobrist keys are precomputed by each PPGeometry
+		MAX_MOVES_PER_PIECE = GEOMETRY.maxMovesPerPiece;
+		MAX_LEGAL_MOVES = GEOMETRY.maxLegalMoves;
 	}
 	
 	/**
-	 * init - initializes the game state to an initial configuration created from a given random seed
+	 * init - initializes the game state to an initial configuration created from a given random seed, with SQUARE to move
 	 */
 	public void init(long seed) {
-		PaperPenguins pp = new PaperPenguins(SIZE, seed);
-		for (int pos = 0; pos < NUM_POS; pos++) {
-			int row = pos / SIZE;
-			int col = pos % SIZE;
-			grid[pos] = pp.grid[row][col];
-			scoredGrid[pos] = 0;
+		int[] board = PPBoardFactory.forSize(size).board(seed); // the board of new PaperPenguins(size, seed)
+		System.arraycopy(board, 0, grid, 0, numPos);
+		System.arraycopy(board, 0, initGrid, 0, numPos);
+		Arrays.fill(scoredGrid, 0);
+		occupiedBits = 0;
+		pieceBits[0] = pieceBits[1] = 0;
+		fishBits[0] = fishBits[1] = fishBits[2] = 0;
+		score[0] = score[1] = 0;
+		Arrays.fill(piecePositions[0], 0);
+		Arrays.fill(piecePositions[1], 0);
+		currentPlayer = SQUARE;
+		hash = 0;
+		for (int pos = 0; pos < numPos; pos++) {
+			if (bitboards)
+				fishBits[grid[pos] - 1] |= 1L << pos;
+			hash ^= zobrist[pos][3 + grid[pos]];
 		}
-		System.arraycopy(grid, 0, initGrid, 0, NUM_POS);
 		turnsTaken = 0;
 	}
 	
+	/**
+	 * Set the player to move, e.g. to start a game with CIRCLE after init.
+	 * @param player - SQUARE or CIRCLE
+	 */
+	public void setCurrentPlayer(int player) {
+		if (player != currentPlayer) {
+			currentPlayer = player;
+			hash ^= zobristCircleToPlay;
+		}
+	}
+	
 	/**
 	 * @return the scoredGrid
 	 */
-	public static int[] getScoredGrid() {
+	public int[] getScoredGrid() {
 		return scoredGrid.clone();
 	}
 
 	/**
 	 * @return the initGrid
 	 */
-	public static int[] getInitGrid() {
+	public int[] getInitGrid() {
 		return initGrid.clone();
 	}
 
@@ -216,6 +494,20 @@ public class PPState implements PPPlayer {
 		return grid.clone();
 	}
 
+	/**
+	 * @return the geometry of the board
+	 */
+	public PPGeometry getGeometry() {
+		return geometry;
+	}
+
+	/**
+	 * @return the board width and height
+	 */
+	public int getSize() {
+		return size;
+	}
+
 	/**
 	 * @return the currentPlayer
 	 */
@@ -245,7 +537,7 @@ public class PPState implements PPPlayer {
 	 * @return the contents of the given grid position row and column.
 	 */
 	int	get(int row, int col) {
-		return get(row * SIZE + col);
+		return get(row * size + col);
 	}
 	
 	/**
@@ -259,6 +551,27 @@ public class PPState implements PPPlayer {
 		return grid[pos];
 	}	
 	
+	/**
+	 * @return the Zobrist hash of the current state
+	 */
+	public long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * Toggle the Zobrist hash for the current player making (or unmaking) the given play from the current grid.
+	 * @param srcPos - piece source position, or -1 for a placement or pass
+	 * @param destPos - piece destination position, or -1 for a pass
+	 */
+	private void hashMove(int srcPos, int destPos) {
+		int piece = (currentPlayer == SQUARE) ? 1 : 0;
+		if (destPos != -1)
+			hash ^= zobrist[destPos][3 + initGrid[destPos]] ^ zobrist[destPos][piece];
+		if (srcPos != -1)
+			hash ^= zobrist[srcPos][piece] ^ zobrist[srcPos][piece + 2];
+		hash ^= zobristCircleToPlay;
+	}
+	
 	/**
 	 * makeMove - make the given play. 
 	 * @param srcPos - piece source position
@@ -268,6 +581,7 @@ public class PPState implements PPPlayer {
 	 */
 	public void makeMove(int srcPos, int destPos) {  // does not check legality
 //		System.out.println("MakeMove: " + moveToString(srcPos, destPos));
+		hashMove(srcPos, destPos);
 		int[] piecePos = (currentPlayer == SQUARE) ? piecePositions[0] : piecePositions[1];
 		if (srcPos == -1) {
 			if (destPos != -1) { // placement, not pass
@@ -276,6 +590,10 @@ public class PPState implements PPPlayer {
 				grid[destPos] = currentPlayer;
 				scoredGrid[destPos] = currentPlayer;
 				piecePos[pieceNumber] = destPos;
+				if (bitboards) {
+					occupiedBits |= 1L << destPos;
+					pieceBits[(currentPlayer == SQUARE) ? 0 : 1] |= 1L << destPos;
+				}
 			}
 		}
 		else {
@@ -291,6 +609,10 @@ public class PPState implements PPPlayer {
 			grid[destPos] = currentPlayer;
 			scoredGrid[destPos] = currentPlayer;
 			grid[srcPos] = BLOCKED;
+			if (bitboards) {
+				occupiedBits |= 1L << destPos;
+				pieceBits[(currentPlayer == SQUARE) ? 0 : 1] ^= (1L << srcPos) | (1L << destPos);
+			}
 		}
 		currentPlayer = (currentPlayer == SQUARE) ? CIRCLE : SQUARE;
 		turnsTaken++;
@@ -299,6 +621,7 @@ public class PPState implements PPPlayer {
 	public void unmakeMove(int srcPos, int destPos) {  // does not check legality
 		turnsTaken--;
 		currentPlayer = (currentPlayer == SQUARE) ? CIRCLE : SQUARE;
+		hashMove(srcPos, destPos);
 		int[] piecePos = (currentPlayer == SQUARE) ? piecePositions[0] : piecePositions[1];
 		if (srcPos == -1) {
 			if (destPos != -1) { // placement, not pass
@@ -307,6 +630,10 @@ public class PPState implements PPPlayer {
 				grid[destPos] = initGrid[destPos];
 				scoredGrid[destPos] = 0; 
 				piecePos[pieceNumber] = 0;
+				if (bitboards) {
+					occupiedBits &= ~(1L << destPos);
+					pieceBits[(currentPlayer == SQUARE) ? 0 : 1] &= ~(1L << destPos);
+				}
 			}
 		}
 		else {
@@ -322,6 +649,10 @@ public class PPState implements PPPlayer {
 			grid[destPos] = initGrid[destPos];
 			scoredGrid[destPos] = 0;
 			grid[srcPos] = currentPlayer;
+			if (bitboards) {
+				occupiedBits &= ~(1L << destPos);
+				pieceBits[(currentPlayer == SQUARE) ? 0 : 1] ^= (1L << srcPos) | (1L << destPos);
+			}
 		}
 	}
 
@@ -329,12 +660,7 @@ public class PPState implements PPPlayer {
 	 * @return whether or not the current player has a legal move.
 	 */
 	boolean hasLegalMove() {
-		int[] piecePos = (currentPlayer == SQUARE) ? piecePositions[0] : piecePositions[1];
-		for (int pos : piecePos) 
-			for (int[] line : lines[pos])
-				if (grid[line[0]] > 0)
-					return true;
-		return false;
+		return hasLegalMove(currentPlayer);
 	}
 	
 	/**
@@ -342,39 +668,223 @@ public class PPState implements PPPlayer {
 	 */
 	boolean hasLegalMove(int player) {
 		int[] piecePos = (player == SQUARE) ? piecePositions[0] : piecePositions[1];
-		for (int pos : piecePos) 
+		if (bitboards) {
+			for (int pos : piecePos) 
+				if ((adjacent[pos] & ~occupiedBits) != 0)
+					return true;
+			return false;
+		}
+		for (int pos : piecePos)
 			for (int[] line : lines[pos])
 				if (grid[line[0]] > 0)
 					return true;
 		return false;
 	}
 	
+	/**
+	 * @param srcPos - piece source position, or -1 for a placement or pass
+	 * @param destPos - piece destination position, or -1 for a pass
+	 * @return whether or not the given play is legal for the current player.  A pass is legal only when the game is not over 
+	 * and the current player has no other legal play.
+	 */
+	public boolean isLegalMove(int srcPos, int destPos) {
+		if (gameOver())
+			return false;
+		if (turnsTaken < TOTAL_PIECES)
+			return srcPos == -1 && destPos >= 0 && destPos < numPos && grid[destPos] > 0;
+		if (srcPos == -1 && destPos == -1)
+			return !hasLegalMove();
+		if (srcPos < 0 || srcPos >= numPos || destPos < 0 || destPos >= numPos || grid[srcPos] != currentPlayer)
+			return false;
+		if (bitboards)
+			return (queenMoves(1L << srcPos, ~occupiedBits) & (1L << destPos)) != 0;
+		for (int[] line : lines[srcPos])
+			for (int pos : line) {
+				if (grid[pos] <= 0)
+					break;
+				if (pos == destPos)
+					return true;
+			}
+		return false;
+	}
+	
+	/**
+	 * @param srcRow - piece source row, or -1 for a placement
+	 * @param srcCol - piece source column, or -1 for a placement
+	 * @param destRow - piece destination row
+	 * @param destCol - piece destination column
+	 * @return whether or not the current player may place or move a penguin as given
+	 */
+	public boolean canMovePen(int srcRow, int srcCol, int destRow, int destCol) {
+		if (destRow < 0 || destRow >= size || destCol < 0 || destCol >= size 
+				|| (srcRow != -1 && (srcRow < 0 || srcRow >= size || srcCol < 0 || srcCol >= size)))
+			return false;
+		return isLegalMove((srcRow == -1) ? -1 : srcRow * size + srcCol, destRow * size + destCol);
+	}
+	
 	/**
 	 * Compute all legal moves.  The number of legal moves will be in legalMoveCount, and the move positions themselves will be
 	 * in the 2D array legalMoves.  Array legalMoves[0] is a partially filled array filled with a legalMoveCount number of legal move source positions.
 	 * Array legalMoves[1] is a partially filled array with a legalMoveCount of corresponding legal move destination positions. 
 	 */
 	void computeLegalMoves() { // compute legal moves for current player (amazonMoved should be false)
-		legalMoveCount = 0;
+		legalMoveCount = generateMoves(legalMoveList, 0);
+		for (int i = 0; i < legalMoveCount; i++) {
+			legalMoves[0][i] = moveSrcPos(legalMoveList[i]);
+			legalMoves[1][i] = moveDestPos(legalMoveList[i]);
+		}
+	}	
+	
+	/**
+	 * Generate all legal moves for the current player in packed form (see packMove) without allocating.  Moves are ordered 
+	 * by piece, then by direction, then by distance.
+	 * @param moves - array to receive the packed legal moves
+	 * @param start - index in moves of the first legal move
+	 * @return the number of legal moves written
+	 */
+	public int generateMoves(int[] moves, int start) {
+		int count = start;
 		if (turnsTaken < TOTAL_PIECES) {
 			// compute legal placements for first moves
-			for (int pos = 0; pos < NUM_POS; pos++)
-				if (grid[pos] > 0) {
-					legalMoves[0][legalMoveCount] = -1;
-					legalMoves[1][legalMoveCount++] = pos;
-				}
-			return;
+			if (bitboards)
+				for (long empty = ~occupiedBits & boardBits(); empty != 0; empty &= empty - 1)
+					moves[count++] = packMove(-1, Long.numberOfTrailingZeros(empty));
+			else
+				for (int pos = 0; pos < numPos; pos++)
+					if (grid[pos] > 0)
+						moves[count++] = packMove(-1, pos);
+			return count - start;
 		}
 		int[] piecePos = (currentPlayer == SQUARE) ? piecePositions[0] : piecePositions[1];
+		if (!bitboards) {
+			// empty destination positions along each line of play, nearest first
+			for (int srcPos : piecePos)
+				for (int[] line : lines[srcPos])
+					for (int destPos : line) {
+						if (grid[destPos] <= 0)
+							break;
+						moves[count++] = packMove(srcPos, destPos);
+					}
+			return count - start;
+		}
 		for (int srcPos : piecePos)
-			for (int[] line : lines[srcPos]) {
-				int i = 0;
-				while (i < line.length && grid[line[i]] > 0) {
-					legalMoves[0][legalMoveCount] = srcPos;
-					legalMoves[1][legalMoveCount++] = line[i++]; // empty destination position along line of empty positions
-				}
+			for (int dir = 0; dir < 8; dir++) {
+				long destinations = rayMoves(srcPos, dir, occupiedBits);
+				// empty destination positions along the line, nearest first
+				if (dirShifts[dir] > 0)
+					for (; destinations != 0; destinations &= destinations - 1)
+						moves[count++] = packMove(srcPos, Long.numberOfTrailingZeros(destinations));
+				else
+					for (; destinations != 0; destinations &= ~Long.highestOneBit(destinations))
+						moves[count++] = packMove(srcPos, 63 - Long.numberOfLeadingZeros(destinations));
 			}
-	}	
+		return count - start;
+	}
+	
+	/**
+	 * Pack a move into a single int.  The source and destination positions are each offset by one to allow for -1 and stored in 8 bits 
+	 * (see PPGeometry.MAX_SIZE), so that a placement has source field 0, a pass packs to 0, and every move fits 16 bits.
+	 * @param srcPos - piece source position, or -1 for a placement or pass
+	 * @param destPos - piece destination position, or -1 for a pass
+	 * @return the packed move
+	 */
+	public static int packMove(int srcPos, int destPos) {
+		return ((srcPos + 1) << 8) | (destPos + 1);
+	}
+	
+	/**
+	 * @param move - packed move
+	 * @return the source position of the move, or -1 for a placement or pass
+	 */
+	public static int moveSrcPos(int move) {
+		return (move >>> 8) - 1;
+	}
+	
+	/**
+	 * @param move - packed move
+	 * @return the destination position of the move, or -1 for a pass
+	 */
+	public static int moveDestPos(int move) {
+		return (move & 0xFF) - 1;
+	}
+	
+	/**
+	 * Compute the empty positions a piece may slide to in a given direction.
+	 * @param pos - piece position
+	 * @param dir - direction index into dRows/dCols
+	 * @param occupied - bitboard of positions that cannot be moved onto or through
+	 * @return bitboard of empty positions along the line from pos up to the first occupied position
+	 */
+	long rayMoves(int pos, int dir, long occupied) {
+		long ray = rays[dir][pos];
+		long blockers = ray & occupied;
+		if (blockers == 0)
+			return ray;
+		int blockerPos = (dirShifts[dir] > 0) ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+		return ray & ~rays[dir][blockerPos] & ~(1L << blockerPos);
+	}
+	
+	/**
+	 * Compute all positions reachable in one queen move from any of a set of positions, using a Kogge-Stone occluded fill in each direction.
+	 * @param sources - bitboard of source positions
+	 * @param empty - bitboard of empty positions that may be moved onto and through
+	 * @return bitboard of empty positions reachable in one move from some source position
+	 */
+	long queenMoves(long sources, long empty) {
+		long moves = 0;
+		for (int dir = 0; dir < 8; dir++) {
+			int shift = dirShifts[dir];
+			long wrap = dirAvoidWrap[dir];
+			long gen = sources;
+			long pro = empty & wrap;
+			gen |= pro & Long.rotateLeft(gen, shift);
+			pro &= Long.rotateLeft(pro, shift);
+			gen |= pro & Long.rotateLeft(gen, 2 * shift);
+			pro &= Long.rotateLeft(pro, 2 * shift);
+			gen |= pro & Long.rotateLeft(gen, 4 * shift);
+			moves |= Long.rotateLeft(gen, shift) & wrap;
+		}
+		return moves & empty;
+	}
+	
+	/**
+	 * Compute all positions within one step (a king move) of any of a set of positions.
+	 * @param positions - bitboard of positions
+	 * @return bitboard of the given positions and all positions adjacent to them
+	 */
+	long adjacentPositions(long positions) {
+		// Step sideways, then step the result up and down (directions 0, 4, 6, and 2)
+		long row = positions | (Long.rotateLeft(positions, dirShifts[0]) & dirAvoidWrap[0]) | (Long.rotateLeft(positions, dirShifts[4]) & dirAvoidWrap[4]);
+		return row | (Long.rotateLeft(row, dirShifts[6]) & dirAvoidWrap[6]) | (Long.rotateLeft(row, dirShifts[2]) & dirAvoidWrap[2]);
+	}
+	
+	/**
+	 * @return the bitboard of all positions of the board
+	 */
+	long boardBits() {
+		return (numPos == Long.SIZE) ? -1L : (1L << numPos) - 1;
+	}
+	
+	/**
+	 * @return the number of empty positions, i.e. positions with fish
+	 */
+	int numEmpty() {
+		if (bitboards)
+			return Long.bitCount(~occupiedBits & boardBits());
+		int count = 0;
+		for (int pos = 0; pos < numPos; pos++)
+			if (grid[pos] > 0)
+				count++;
+		return count;
+	}
+	
+	/**
+	 * @param positions - bitboard of positions
+	 * @return the total initial fish value of the given positions
+	 */
+	int fishSum(long positions) {
+		return Long.bitCount(positions & fishBits[0]) + 2 * Long.bitCount(positions & fishBits[1]) + 3 * Long.bitCount(positions & fishBits[2]);
+	}
 
 	/**
 	 * Convert a position row and column to a String in Chess notation.
@@ -393,7 +903,7 @@ public class PPState implements PPPlayer {
 	 * @return String representation of position.
 	 */
 	String posToString(int pos) {
-		return rowColToString(pos / SIZE, pos % SIZE);
+		return rowColToString(pos / size, pos % size);
 	}
 	
 	
@@ -445,21 +955,62 @@ public class PPState implements PPPlayer {
 	 * @return simple board evaluation according to Lorentz's scheme 
 	 */
 	int simpleEval() {
-		computeBoardDistances();
 		int count = score[0] - score[1];
-		for (int i = 0; i < NUM_POS; i++)
-			if (gridDistance[0][i] != UNREACHABLE || gridDistance[1][i] != UNREACHABLE) // reachable by some player
-				if (gridDistance[0][i] != 0 && gridDistance[1][i] != 0) { // not currently occupied by a player
-					if (gridDistance[0][i] == gridDistance[1][i]) { // same distance
-						if (DISTANCE_TIE_GOES_TO_CURRENT_PLAYER)
-							count += (currentPlayer == SQUARE) ? 1 : -1; // if Amazon already moved, tie goes to next player.
-					}
-					else
-						count += (gridDistance[0][i] < gridDistance[1][i]) ? grid[i] : -grid[i];
+		if (bitboards)
+			count += territory(pieceBits[0], pieceBits[1], ~occupiedBits, tieValue());
+		else {
+			computeBoardDistances();
+			int tieValue = tieValue();
+			for (int pos = 0; pos < numPos; pos++)
+				if (grid[pos] > 0) {
+					int squareDistance = gridDistance[0][pos], circleDistance = gridDistance[1][pos];
+					if (squareDistance < circleDistance)
+						count += grid[pos];
+					else if (circleDistance < squareDistance)
+						count -= grid[pos];
+					else if (squareDistance != UNREACHABLE)
+						count += tieValue;
 				}
+		}
 		return (currentPlayer == SQUARE) ? count : -count;
 	}
 	
+	/**
+	 * @return the territory value to SQUARE of a position at equal distance from both players: 0, or if
+	 * DISTANCE_TIE_GOES_TO_CURRENT_PLAYER, 1 when SQUARE is to play and -1 when CIRCLE is to play
+	 */
+	int tieValue() {
+		if (!DISTANCE_TIE_GOES_TO_CURRENT_PLAYER)
+			return 0;
+		return (currentPlayer == SQUARE) ? 1 : -1;
+	}
+	
+	/**
+	 * Compute the territory term of simpleEval over a set of empty positions of a board with bitboards.
+	 * @param squarePieces - bitboard of SQUARE piece positions
+	 * @param circlePieces - bitboard of CIRCLE piece positions
+	 * @param empty - bitboard of empty positions that may be moved onto and through
+	 * @param tieValue - value to SQUARE of each position at equal distance from both players
+	 * @return fish on positions closer to SQUARE, less fish on positions closer to CIRCLE, plus tieValue for each tied position
+	 */
+	int territory(long squarePieces, long circlePieces, long empty, int tieValue) {
+		// Expand both players' reachable positions one move at a time; a position first reached by exactly one player at some distance 
+		// is closer to that player.
+		long squareReached = squarePieces, circleReached = circlePieces;
+		long squareFrontier = squareReached, circleFrontier = circleReached;
+		long squareCloser = 0, circleCloser = 0, tied = 0;
+		while ((squareFrontier | circleFrontier) != 0) {
+			squareFrontier = queenMoves(squareFrontier, empty) & ~squareReached;
+			circleFrontier = queenMoves(circleFrontier, empty) & ~circleReached;
+			squareCloser |= squareFrontier & ~circleReached & ~circleFrontier;
+			circleCloser |= circleFrontier & ~squareReached & ~squareFrontier;
+			tied |= squareFrontier & circleFrontier;
+			squareReached |= squareFrontier;
+			circleReached |= circleFrontier;
+		}
+		return fishSum(squareCloser) - fishSum(circleCloser) + tieValue * Long.bitCount(tied);
+	}
+	
 	/**
 	 * Compute board distances from each player.  All values less than UNREACHABLE, indicate the minimum 
 	 * number of moves it would take a player to reach the position.
@@ -467,44 +1018,54 @@ public class PPState implements PPPlayer {
 	 * @param grid - contents of board positions
 	 */
 	void computeBoardDistances() {
-		int squareSearchQueueCount = 0, circleSearchQueueCount = 0;
-		int squareSearchQueueIndex = 0, circleSearchQueueIndex = 0;
-		for (int i = 0; i < NUM_POS; i++) {
-			gridDistance[0][i] = UNREACHABLE;
-			gridDistance[1][i] = UNREACHABLE;
-			if (grid[i] == SQUARE) {
-				gridDistance[0][i] = 0;
-				squareSearchQueue[squareSearchQueueCount++] = i;
-			}
-			else if (grid[i] == CIRCLE) {
-				gridDistance[1][i] = 0;
-				circleSearchQueue[circleSearchQueueCount++] = i;
-			}
+		if (!bitboards) {
+			computeLineDistances();
+			return;
 		}
-		// Propagate SQUARE moves via breadth first search
-		while (squareSearchQueueIndex < squareSearchQueueCount) {
-			int pos = squareSearchQueue[squareSearchQueueIndex++];
-			int nextDist = gridDistance[0][pos] + 1;
-			for (int[] line : lines[pos]) {
-				for (int i = 0; i < line.length && grid[line[i]] > 0; i++)
-					if (gridDistance[0][line[i]] > nextDist) {
-						gridDistance[0][line[i]] = nextDist;
-						squareSearchQueue[squareSearchQueueCount++] = line[i];
-					}
+		long empty = ~occupiedBits;
+		for (int player = 0; player < 2; player++) {
+			int[] distance = gridDistance[player];
+			for (int i = 0; i < numPos; i++)
+				distance[i] = UNREACHABLE;
+			// Propagate moves via breadth first search, one distance layer at a time
+			long reached = pieceBits[player];
+			long frontier = reached;
+			for (int dist = 0; frontier != 0; dist++) {
+				for (long bits = frontier; bits != 0; bits &= bits - 1)
+					distance[Long.numberOfTrailingZeros(bits)] = dist;
+				frontier = queenMoves(frontier, empty) & ~reached;
+				reached |= frontier;
 			}
 		}
-		// Propagate CIRCLE moves via breadth first search
-		while (circleSearchQueueIndex < circleSearchQueueCount) {
-			int pos = circleSearchQueue[circleSearchQueueIndex++];
-			int nextDist = gridDistance[1][pos] + 1;
-			for (int[] line : lines[pos]) {
-				for (int i = 0; i < line.length && grid[line[i]] > 0; i++)
-					if (gridDistance[1][line[i]] > nextDist) {
-						gridDistance[1][line[i]] = nextDist;
-						circleSearchQueue[circleSearchQueueCount++] = line[i];
+	}
+	
+	/**
+	 * Compute board distances as computeBoardDistances does, by breadth-first search along the lines of play.
+	 */
+	private void computeLineDistances() {
+		for (int player = 0; player < 2; player++) {
+			int[] distance = gridDistance[player];
+			Arrays.fill(distance, UNREACHABLE);
+			int head = 0, tail = 0;
+			for (int pos : piecePositions[player])
+				if (grid[pos] == ((player == 0) ? SQUARE : CIRCLE) && distance[pos] != 0) {
+					distance[pos] = 0;
+					distanceQueue[tail++] = pos;
+				}
+			while (head < tail) {
+				int pos = distanceQueue[head++];
+				int dist = distance[pos] + 1;
+				for (int[] line : lines[pos])
+					for (int destPos : line) {
+						if (grid[destPos] <= 0)
+							break;
+						if (distance[destPos] == UNREACHABLE) {
+							distance[destPos] = dist;
+							distanceQueue[tail++] = destPos;
+						}
 					}
 			}
-		}		
+		}
 	}
 	
 	/**
@@ -549,12 +1110,12 @@ public class PPState implements PPPlayer {
 	 */
 	public String boardToString() {
 		StringBuilder sb = new StringBuilder("   ");
-		for (int col = 0; col < SIZE; col++)
+		for (int col = 0; col < size; col++)
 			sb.append(" " + (char) ('a' + col));
 		sb.append("\n");
-		for (int row = SIZE - 1; row >= 0; row --) {
+		for (int row = size - 1; row >= 0; row --) {
 			sb.append(String.format("%2d ", row + 1));
-			for (int col = 0; col < SIZE; col++) {
+			for (int col = 0; col < size; col++) {
 				char symbol = '?';
 				int contents = get(row, col);
 				if (contents == BLOCKED)
@@ -570,7 +1131,7 @@ public class PPState implements PPPlayer {
 			sb.append(String.format(" %2d\n", row + 1));
 		}
 		sb.append("   ");
-		for (int col = 0; col < SIZE; col++)
+		for (int col = 0; col < size; col++)
 			sb.append(" " + (char) ('a' + col));
 		sb.append("\n");
 		sb.append(String.format("%s Score: %2d\n%s Score: %2d\n", SQUARE_CHAR, score[0], CIRCLE_CHAR, score[1]));
@@ -0,0 +1,109 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * PPStateEncodingBenchmark - checks that the compact state encoding (PPState.encode/decode) round-trips every state of seeded
+ * random games, through long arrays and heap and direct ByteBuffers, then compares the throughput of copying, encoding, and
+ * decoding states.
+ *
+ * Usage: java PPStateEncodingBenchmark [numGames [rounds]]
+ */
+public class PPStateEncodingBenchmark {
+
+	public static void main(String[] args) {
+		int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		// Play seeded random games, alternating the first player, and collect every state
+		PPState[] states = new PPState[numGames * (PPStateMinimax.MAX_SEARCH_DEPTH + 1)];
+		int numStates = 0;
+		for (int game = 0; game < numGames; game++) {
+			PPState state = new PPState();
+			state.init(game);
+			state.setCurrentPlayer((game % 2 == 0) ? PPState.SQUARE : PPState.CIRCLE);
+			Random random = new Random(game);
+			states[numStates++] = new PPState(state);
+			while (!state.gameOver()) {
+				state.computeLegalMoves();
+				if (state.legalMoveCount == 0)
+					state.makeMove(-1, -1);
+				else {
+					int i = random.nextInt(state.legalMoveCount);
+					state.makeMove(state.legalMoves[0][i], state.legalMoves[1][i]);
+				}
+				states[numStates++] = new PPState(state);
+			}
+		}
+
+		// Check round trips
+		long[] code = new long[numStates * PPState.ENCODED_LONGS];
+		ByteBuffer heapBuffer = ByteBuffer.allocate(numStates * PPState.ENCODED_BYTES);
+		ByteBuffer directBuffer = ByteBuffer.allocateDirect(numStates * PPState.ENCODED_BYTES);
+		for (int i = 0; i < numStates; i++) {
+			states[i].encode(code, i * PPState.ENCODED_LONGS);
+			states[i].encode(heapBuffer);
+			states[i].encode(directBuffer);
+		}
+		heapBuffer.flip();
+		directBuffer.flip();
+		int mismatches = 0;
+		PPState decoded = new PPState();
+		for (int i = 0; i < numStates; i++) {
+			decoded.decode(code, i * PPState.ENCODED_LONGS);
+			mismatches += equal(states[i], decoded) ? 0 : 1;
+			decoded.decode(heapBuffer);
+			mismatches += equal(states[i], decoded) ? 0 : 1;
+			decoded.decode(directBuffer);
+			mismatches += equal(states[i], decoded) ? 0 : 1;
+		}
+		System.out.printf("%d states of %d games round-tripped, %d mismatches, %d bytes each\n", numStates, numGames, mismatches,
+				PPState.ENCODED_BYTES);
+
+		// Compare throughput
+		PPState copy = new PPState();
+		long[] bestNanos = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+		long checksum = 0;
+		for (int round = 0; round < rounds; round++) {
+			long startNanos = System.nanoTime();
+			for (int i = 0; i < numStates; i++) {
+				copy.copy(states[i]);
+				checksum += copy.hash;
+			}
+			bestNanos[0] = Math.min(bestNanos[0], System.nanoTime() - startNanos);
+			startNanos = System.nanoTime();
+			for (int i = 0; i < numStates; i++)
+				states[i].encode(code, i * PPState.ENCODED_LONGS);
+			bestNanos[1] = Math.min(bestNanos[1], System.nanoTime() - startNanos);
+			directBuffer.clear();
+			startNanos = System.nanoTime();
+			for (int i = 0; i < numStates; i++)
+				states[i].encode(directBuffer);
+			bestNanos[2] = Math.min(bestNanos[2], System.nanoTime() - startNanos);
+			directBuffer.flip();
+			startNanos = System.nanoTime();
+			for (int i = 0; i < numStates; i++) {
+				decoded.decode(directBuffer);
+				checksum += decoded.hash;
+			}
+			bestNanos[3] = Math.min(bestNanos[3], System.nanoTime() - startNanos);
+		}
+		String[] names = {"copy", "encode long[]", "encode ByteBuffer", "decode ByteBuffer"};
+		System.out.println("operation           ns/state");
+		for (int i = 0; i < names.length; i++)
+			System.out.printf("%-18s  %8.1f\n", names[i], (double) bestNanos[i] / numStates);
+		System.out.printf("(checksum %d)\n", checksum);
+	}
+
+	/**
+	 * @param a - state
+	 * @param b - state
+	 * @return whether the states agree in all encoded and derived fields
+	 */
+	static boolean equal(PPState a, PPState b) {
+		return Arrays.equals(a.grid, b.grid) && Arrays.equals(a.initGrid, b.initGrid) && Arrays.equals(a.scoredGrid, b.scoredGrid)
+				&& Arrays.equals(a.piecePositions[0], b.piecePositions[0]) && Arrays.equals(a.piecePositions[1], b.piecePositions[1])
+				&& Arrays.equals(a.pieceBits, b.pieceBits) && Arrays.equals(a.fishBits, b.fishBits) && Arrays.equals(a.score, b.score)
+				&& a.occupiedBits == b.occupiedBits && a.hash == b.hash && a.currentPlayer == b.currentPlayer && a.turnsTaken == b.turnsTaken;
+	}
+}
@@ -0,0 +1,435 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * PPStateMCMoveEval - a Monte Carlo tree search player using UCT (UCB1 applied to trees) selection and uniform random playouts.
+ *
+ * The search tree is held in a preallocated pool of nodes stored in parallel arrays, and playouts generate packed moves into a
+ * preallocated buffer, so that search allocates nothing.  After each play, the subtree of the move made is kept as the new
+ * search tree.  With more than one thread, each helper thread searches its own tree of the same state (root parallelization),
+ * and the play with the most visits summed over all trees is chosen.
+ */
+public class PPStateMCMoveEval extends PPState {
+
+	/**
+	 * the default number of search tree nodes per thread
+	 */
+	public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+	/**
+	 * the default maximum number of playouts per thread for each play
+	 */
+	public static final long DEFAULT_MAX_PLAYOUTS = 1 << 20;
+
+	/**
+	 * number of playouts between checks of the clock
+	 */
+	static final int PLAYOUTS_PER_TIME_CHECK = 64;
+
+	/**
+	 * UCB1 exploration constant for playout rewards between 0 and 1
+	 */
+	double explorationConstant = Math.sqrt(2);
+
+	long maxPlayouts = DEFAULT_MAX_PLAYOUTS;
+
+	// Search tree node pool.  Node i represents the state after packed move nodeMove[i] from its parent.  Its children, if
+	// expanded, are the nodeNumChildren[i] nodes starting at nodeFirstChild[i].  nodeReward[i] is the total playout reward,
+	// in half points (win 2, draw 1, loss 0), of the player who made nodeMove[i].
+	int[] nodeMove, nodeFirstChild, nodeNumChildren, nodeVisits, nodeReward;
+	int maxNodes, numNodes, root;
+
+	PPState walkState; // working copy of this state for playouts
+	int[] moveBuffer = new int[maxLegalMoves];
+	int[] pathNodes = new int[geometry.maxGamePlies + 2];
+	int[] pathMovers = new int[geometry.maxGamePlies + 2];
+	long randomState;
+
+	long playoutCount; // playouts of the last play by this thread
+	long totalPlayoutCount; // playouts of the last play, counting those of helper threads
+	long searchNanos; // duration of the last play search
+
+	/**
+	 * number of threads searching each play: this thread and numThreads - 1 helpers with their own search trees
+	 */
+	int numThreads = 1;
+	PPStateMCMoveEval[] helpers;
+	Future<?>[] helperFutures;
+	ExecutorService helperPool;
+
+	public PPStateMCMoveEval() {
+		this(DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * @param maxNodes - number of search tree nodes per thread
+	 */
+	public PPStateMCMoveEval(int maxNodes) {
+		this(GEOMETRY, maxNodes);
+	}
+
+	/**
+	 * @param geometry - geometry of the board to play
+	 */
+	public PPStateMCMoveEval(PPGeometry geometry) {
+		this(geometry, DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * @param geometry - geometry of the board to play
+	 * @param maxNodes - number of search tree nodes per thread
+	 */
+	public PPStateMCMoveEval(PPGeometry geometry, int maxNodes) {
+		super(geometry);
+		this.maxNodes = maxNodes;
+		nodeMove = new int[maxNodes];
+		nodeFirstChild = new int[maxNodes];
+		nodeNumChildren = new int[maxNodes];
+		nodeVisits = new int[maxNodes];
+		nodeReward = new int[maxNodes];
+		walkState = new PPState(this);
+		setRandomSeed(0);
+		resetTree();
+	}
+
+	/**
+	 * Set the number of search threads.
+	 * @param numThreads - number of threads searching each play
+	 */
+	public void setNumThreads(int numThreads) {
+		if (helperPool != null)
+			helperPool.shutdown();
+		helperPool = null;
+		helpers = null;
+		helperFutures = null;
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	/**
+	 * @param seed - seed of the playout random number generator
+	 */
+	public void setRandomSeed(long seed) {
+		randomState = seed ^ 0x9E3779B97F4A7C15L;
+		if (randomState == 0)
+			randomState = 1;
+	}
+
+	/**
+	 * getName - get the name of the player
+	 * @return the name of the player
+	 */
+	public String getName() {
+		return "Neller_MCTS_UCT_THREADS_" + numThreads;
+	}
+
+	public void init(long seed) {
+		super.init(seed);
+		resetTree();
+		if (helpers != null)
+			for (PPStateMCMoveEval helper : helpers)
+				helper.init(seed);
+	}
+
+	/**
+	 * makeMove - make the given play, keeping the search subtree of the play.
+	 * @param srcPos - piece source position
+	 * @param destPos - piece destination position
+	 */
+	public void makeMove(int srcPos, int destPos) {
+		super.makeMove(srcPos, destPos);
+		int move = packMove(srcPos, destPos);
+		int newRoot = -1;
+		for (int child = nodeFirstChild[root], end = child + nodeNumChildren[root]; child < end; child++)
+			if (nodeMove[child] == move)
+				newRoot = child;
+		if (newRoot == -1)
+			resetTree();
+		else
+			root = newRoot;
+		if (helpers != null)
+			for (PPStateMCMoveEval helper : helpers)
+				helper.makeMove(srcPos, destPos);
+	}
+
+	public void unmakeMove(int srcPos, int destPos) {
+		super.unmakeMove(srcPos, destPos);
+		resetTree();
+		if (helpers != null)
+			for (PPStateMCMoveEval helper : helpers)
+				helper.unmakeMove(srcPos, destPos);
+	}
+
+	/**
+	 * Discard the search tree.
+	 */
+	void resetTree() {
+		root = 0;
+		numNodes = 1;
+		nodeMove[root] = NO_MOVE;
+		nodeNumChildren[root] = 0;
+		nodeVisits[root] = 0;
+		nodeReward[root] = 0;
+	}
+
+	/**
+	 * getPlay - get the chosen play.  Searches for an equal share of the remaining time over the expected number of remaining
+	 * moves, or until each thread has made maxPlayouts playouts.
+	 * @param millisRemaining - player decision-making milliseconds remaining in the game.
+	 * @return an int array of length 2 containing the penguin source position and penguin destination position.  In the case of an initial piece placement, the source position is -1.
+	 * Each position is encoded in zero-based row-major form, i.e. for row r and column c on a SIZE-by-SIZE board, the position p is
+	 * (r * SIZE + c).  For position p, r = p / SIZE; c = p % SIZE;
+	 */
+	public int[] getPlay(long millisRemaining) {
+		long startNanos = System.nanoTime();
+		totalPlayoutCount = 0;
+		searchNanos = 0;
+		if (!hasLegalMove()) {
+			play[0] = play[1] = -1;
+			return play;
+		}
+		// Allocate time as PPStateMinimax does.  Each move uses up one empty position, so we can expect at most half of the
+		// empty positions to be our moves.
+		long expMovesRemaining = Math.max(1, numEmpty() / 2);
+		long budgetMillis = Math.max(0, millisRemaining - PPStateMinimax.RESERVE_MILLIS);
+		long decisionMillis = budgetMillis / expMovesRemaining;
+		long stopNanos = (decisionMillis > Long.MAX_VALUE / 1000000) ? Long.MAX_VALUE : decisionMillis * 1000000;
+
+		if (numThreads > 1)
+			startHelpers(startNanos, stopNanos);
+		search(startNanos, stopNanos);
+		totalPlayoutCount = playoutCount;
+		if (numThreads > 1)
+			stopHelpers();
+
+		// Choose the play with the most visits over all search trees
+		int bestMove = PASS_MOVE;
+		long bestVisits = -1;
+		for (int child = nodeFirstChild[root], end = child + nodeNumChildren[root]; child < end; child++) {
+			long visits = nodeVisits[child];
+			if (helpers != null)
+				for (PPStateMCMoveEval helper : helpers)
+					visits += helper.childVisits(nodeMove[child]);
+			if (visits > bestVisits) {
+				bestVisits = visits;
+				bestMove = nodeMove[child];
+			}
+		}
+		play[0] = moveSrcPos(bestMove);
+		play[1] = moveDestPos(bestMove);
+		searchNanos = System.nanoTime() - startNanos;
+		return play;
+	}
+
+	/**
+	 * Search this state until the time allocation has elapsed or maxPlayouts playouts have been made.
+	 * @param startNanos - System.nanoTime() at the start of the search
+	 * @param stopNanos - nanoseconds after startNanos at which to stop
+	 */
+	void search(long startNanos, long stopNanos) {
+		if (numNodes > maxNodes - maxNodes / 4)
+			resetTree(); // leave room to grow the tree of this play
+		playoutCount = 0;
+		do
+			playout();
+		while (++playoutCount < maxPlayouts && (playoutCount % PLAYOUTS_PER_TIME_CHECK != 0 || System.nanoTime() - startNanos <= stopNanos));
+	}
+
+	/**
+	 * Select a path through the search tree by UCT, expand its leaf, finish the game with random play, and update the path
+	 * with the playout reward.
+	 */
+	void playout() {
+		PPState state = walkState;
+		state.copy(this);
+		int node = root;
+		int pathLength = 0;
+		pathNodes[pathLength++] = node;
+
+		// Select
+		while (nodeNumChildren[node] > 0) {
+			pathMovers[pathLength] = state.currentPlayer;
+			node = selectChild(node);
+			pathNodes[pathLength++] = node;
+			state.makeMove(moveSrcPos(nodeMove[node]), moveDestPos(nodeMove[node]));
+		}
+
+		// Expand a leaf that has been visited before (or the root) unless the node pool is full
+		if ((nodeVisits[node] > 0 || node == root) && numNodes + maxLegalMoves <= maxNodes && !state.gameOver()) {
+			int numMoves = state.generateMoves(moveBuffer, 0);
+			if (numMoves == 0)
+				moveBuffer[numMoves++] = PASS_MOVE; // the game is not over, so the other player can move
+			nodeFirstChild[node] = numNodes;
+			nodeNumChildren[node] = numMoves;
+			for (int i = 0; i < numMoves; i++) {
+				int child = numNodes++;
+				nodeMove[child] = moveBuffer[i];
+				nodeNumChildren[child] = 0;
+				nodeVisits[child] = 0;
+				nodeReward[child] = 0;
+			}
+			pathMovers[pathLength] = state.currentPlayer;
+			node = nodeFirstChild[node] + nextInt(numMoves);
+			pathNodes[pathLength++] = node;
+			state.makeMove(moveSrcPos(nodeMove[node]), moveDestPos(nodeMove[node]));
+		}
+
+		// Simulate
+		while (true) {
+			int numMoves = state.generateMoves(moveBuffer, 0);
+			if (numMoves > 0) {
+				int move = moveBuffer[nextInt(numMoves)];
+				state.makeMove(moveSrcPos(move), moveDestPos(move));
+			}
+			else if (state.gameOver())
+				break;
+			else
+				state.makeMove(-1, -1);
+		}
+
+		// Backpropagate
+		int squareMargin = state.score[0] - state.score[1];
+		int squareReward = (squareMargin > 0) ? 2 : (squareMargin == 0) ? 1 : 0;
+		nodeVisits[pathNodes[0]]++;
+		for (int i = 1; i < pathLength; i++) {
+			int pathNode = pathNodes[i];
+			nodeVisits[pathNode]++;
+			nodeReward[pathNode] += (pathMovers[i] == SQUARE) ? squareReward : 2 - squareReward;
+		}
+	}
+
+	/**
+	 * @param node - an expanded node
+	 * @return the first unvisited child of the node, or if all have been visited, the child with the greatest UCB1 value
+	 */
+	int selectChild(int node) {
+		int first = nodeFirstChild[node], end = first + nodeNumChildren[node];
+		double logVisits = Math.log(nodeVisits[node]);
+		int bestChild = first;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int child = first; child < end; child++) {
+			int visits = nodeVisits[child];
+			if (visits == 0)
+				return child;
+			double value = nodeReward[child] / (2.0 * visits) + explorationConstant * Math.sqrt(logVisits / visits);
+			if (value > bestValue) {
+				bestValue = value;
+				bestChild = child;
+			}
+		}
+		return bestChild;
+	}
+
+	/**
+	 * @param move - packed move
+	 * @return the number of visits of the root child for the given move
+	 */
+	int childVisits(int move) {
+		for (int child = nodeFirstChild[root], end = child + nodeNumChildren[root]; child < end; child++)
+			if (nodeMove[child] == move)
+				return nodeVisits[child];
+		return 0;
+	}
+
+	/**
+	 * @param bound - upper bound (exclusive)
+	 * @return a pseudorandom int from 0 (inclusive) to bound (exclusive) from the xorshift64* generator
+	 */
+	int nextInt(int bound) {
+		randomState ^= randomState >>> 12;
+		randomState ^= randomState << 25;
+		randomState ^= randomState >>> 27;
+		return (int) ((((randomState * 0x2545F4914F6CDD1DL) >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * Start numThreads - 1 helper searches of this state on pool threads.
+	 * @param startNanos - System.nanoTime() at the start of the search
+	 * @param stopNanos - nanoseconds after startNanos at which to stop
+	 */
+	void startHelpers(final long startNanos, final long stopNanos) {
+		if (helpers == null) {
+			helpers = new PPStateMCMoveEval[numThreads - 1];
+			helperFutures = new Future<?>[numThreads - 1];
+			helperPool = Executors.newFixedThreadPool(numThreads - 1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PPStateMCMoveEval helper");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			for (int i = 0; i < helpers.length; i++) {
+				helpers[i] = new PPStateMCMoveEval(geometry, maxNodes);
+				helpers[i].setRandomSeed(randomState + i + 1);
+				helpers[i].copy(this); // helpers then follow this state through makeMove
+			}
+		}
+		for (int i = 0; i < helpers.length; i++) {
+			final PPStateMCMoveEval helper = helpers[i];
+			helper.explorationConstant = explorationConstant;
+			helper.maxPlayouts = maxPlayouts;
+			helperFutures[i] = helperPool.submit(new Runnable() {
+				public void run() {
+					helper.search(startNanos, stopNanos);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Wait for the helper searches to finish, and add their playouts to totalPlayoutCount.
+	 */
+	void stopHelpers() {
+		for (int i = 0; i < helpers.length; i++) {
+			try {
+				helperFutures[i].get();
+			}
+			catch (Exception e) {
+				throw new RuntimeException("Helper search failed", e);
+			}
+			totalPlayoutCount += helpers[i].playoutCount;
+		}
+	}
+
+	/**
+	 * Monte Carlo tree search game demo against PPStateMinimax, reporting playouts per second.
+	 * Usage: java PPStateMCMoveEval [gameMillis [numThreads [seed]]]
+	 */
+	public static void main(String[] args) {
+		long gameMillis = args.length > 0 ? Long.parseLong(args[0]) : 60000;
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		PPStateMCMoveEval mcts = new PPStateMCMoveEval();
+		mcts.setNumThreads(numThreads);
+		PPStateMinimax minimax = new PPStateMinimax();
+		PPState state = new PPState();
+		mcts.init(seed);
+		minimax.init(seed);
+		state.init(seed);
+		long[] millisRemaining = {gameMillis, gameMillis};
+		long playouts = 0, playoutNanos = 0;
+		while (!state.gameOver()) {
+			int player = (state.getCurrentPlayer() == SQUARE) ? 0 : 1;
+			long startMillis = System.currentTimeMillis();
+			int[] play = (player == 0) ? mcts.getPlay(millisRemaining[0]) : minimax.getPlay(millisRemaining[1]);
+			millisRemaining[player] -= System.currentTimeMillis() - startMillis;
+			if (player == 0) {
+				playouts += mcts.totalPlayoutCount;
+				playoutNanos += mcts.searchNanos;
+				System.out.printf("%s %s: %d playouts, %.0f playouts/sec\n", mcts.getName(), state.moveToString(play[0], play[1]),
+						mcts.totalPlayoutCount, mcts.totalPlayoutCount / (mcts.searchNanos / 1e9));
+			}
+			else
+				System.out.printf("%s %s\n", minimax.getName(), state.moveToString(play[0], play[1]));
+			state.makeMove(play[0], play[1]);
+			mcts.makeMove(play[0], play[1]);
+			minimax.makeMove(play[0], play[1]);
+		}
+		System.out.println(state.boardToString());
+		System.out.printf("%s (%c) %d, %s (%c) %d; milliseconds remaining %d, %d; %.0f playouts/sec overall\n", mcts.getName(), SQUARE_CHAR,
+				state.getScore()[0], minimax.getName(), CIRCLE_CHAR, state.getScore()[1], millisRemaining[0], millisRemaining[1],
+				playouts / (playoutNanos / 1e9));
+	}
+}
@@ -1,58 +1,746 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 
 public class PPStateMinimax extends PPState {
 
-	static final int maxCallDepth = 4;
+	/**
+	 * the greatest number of plies that can remain in any game on the default board, counting passes
+	 */
+	static final int MAX_SEARCH_DEPTH = 2 * NUM_POS;
+	
+	/**
+	 * decision-making milliseconds held back from every time allocation to guard against timing jitter
+	 */
+	static final long RESERVE_MILLIS = 50;
+	
+	/**
+	 * number of search nodes between checks of the clock
+	 */
+	static final int NODES_PER_TIME_CHECK = 1024;
+	
+	/**
+	 * endgame solver nodes allowed per millisecond of a decision's time allocation, well under the solver's speed so that an 
+	 * abandoned solve costs at most a fraction of the allocation
+	 */
+	static final long ENDGAME_NODES_PER_MILLI = 2048;
+	
+	/**
+	 * transposition table depth recorded for results that were searched to the end of the game, greater than that of any 
+	 * depth-limited result
+	 */
+	static final int SOLVED_DEPTH = 0xFF;
+	
+	/**
+	 * search score bound greater in magnitude than any search score
+	 */
+	static final int INFINITE_SCORE = 1 << 30;
+	
+	/**
+	 * base search score of a won game, to which the final score margin is added.  Heuristic evaluations are always smaller in magnitude.
+	 */
+	static final int WIN_SCORE = 1 << 20;
+	
+	/**
+	 * base search score of a lost game, to which the final (negative) score margin is added
+	 */
+	static final int LOSS_SCORE = -WIN_SCORE;
+	
+	/**
+	 * search score of a drawn game
+	 */
+	static final int DRAW_SCORE = 0;
+	
+	/**
+	 * the greatest number of plies that can remain in any game on this board, counting passes
+	 */
+	final int maxSearchDepth = geometry.maxGamePlies;
+	
+	int maxCallDepth = maxSearchDepth;
 	int bestSrcPos, bestDestPos;
+	int completedDepth; // depth of the last completed iterative-deepening search
+	long nodeCount;
+	long startNanos; // System.nanoTime() at the start of the current search
+	long stopNanos; // nanoseconds after startNanos at which the current search must be aborted
+	boolean searchAborted; // whether the current search iteration ran out of time
+	boolean depthCutoff; // whether the current search iteration evaluated any non-terminal state at its depth limit
+	int rootDepth; // depth of the current search iteration
+	
+	/**
+	 * transposition table shared by successive searches, or null to search without one
+	 */
+	PPTranspositionTable transpositionTable;
+	long ttProbes, ttHits, ttCutoffs;
+	
+	/**
+	 * evaluator of states at the search depth limit, or null to evaluate them with simpleEval
+	 */
+	PPEvaluator evaluator;
+	
+	/**
+	 * statistics collected by searches of this player (not by its helper searches, apart from their node count), or null to 
+	 * collect none
+	 */
+	PPSearchStats stats;
+	
+	/**
+	 * exact solver of states whose regions are partitioned between the players, played instead of searching once it can solve 
+	 * the state to play, or null to always search
+	 */
+	PPEndgameSolver endgameSolver;
+	
+	/**
+	 * pondering modes: no pondering, search of the position after the predicted opponent reply during the opponent's turn, or 
+	 * search of the opponent's position (all replies) during the opponent's turn
+	 */
+	public static final int NO_PONDER = 0, PONDER_PREDICTED = 1, PONDER_ALL = 2;
+	int ponderMode = NO_PONDER;
+	int ponderPlayer; // player of the last getPlay, i.e. this player, or 0 before the first getPlay
+	PPStateMinimax ponderSearch; // background search of this state during the opponent's turn
+	Future<?> ponderFuture;
+	ExecutorService ponderPool;
+	int ponderMove = NO_MOVE; // predicted opponent reply being pondered, or NO_MOVE when pondering all replies
+	boolean ponderHit; // whether the opponent made the predicted reply while pondering continues
+	long ponderStartNanos;
+	long ponderHits, ponderMisses; // predicted replies that were and were not made
+	volatile boolean ponderStopped; // for a ponder search, whether it should stop
+	volatile int ponderPlay; // for a ponder search, packed best play of the last completed iteration
+	
+	/**
+	 * book of placement-phase plays, played instead of searching when the state to play is in the book, or null to always search
+	 */
+	PPOpeningBook openingBook;
+	
+	/**
+	 * search stack of packed moves (see PPState.packMove).  Each search state generates its moves above those of its ancestors, 
+	 * starting at index moveStackTop, so that search allocates nothing.
+	 */
+	int[] moveStack = new int[(maxSearchDepth + 1) * maxLegalMoves];
+	int moveStackTop;
+	
+	/**
+	 * whether to order moves by the transposition table move, killer moves, history, and destination fish (true), or to search 
+	 * moves in generated order, after the transposition table move if ttMoveFirst (false)
+	 */
+	boolean moveOrdering = true;
+	
+	/**
+	 * without moveOrdering, whether to search the transposition table move first (true) or all moves in generated order (false)
+	 */
+	boolean ttMoveFirst = true;
+	
+	/**
+	 * move ordering scores parallel to moveStack
+	 */
+	int[] moveScores = new int[moveStack.length];
+	
+	/**
+	 * killers[2 * ply] and killers[2 * ply + 1] - the two most recent moves at search depth ply to cause a cutoff
+	 */
+	int[] killers = new int[2 * (maxSearchDepth + 1)];
+	
+	/**
+	 * history[packed move] - sum over cutoffs caused by the move (from source to destination position) of the square of the depth 
+	 * remaining; halved by each search and whenever a value exceeds MAX_HISTORY
+	 */
+	int[] history = new int[(numPos + 1) << 8];
+	static final int MAX_HISTORY = 1 << 24;
+	static final int TT_MOVE_SCORE = Integer.MAX_VALUE, KILLER_MOVE_SCORE = TT_MOVE_SCORE - 2;
+	long cutoffNodes, firstMoveCutoffs; // states searched that caused a cutoff, and those where the first move caused it
+	
+	/**
+	 * whether to search moves after the first with a null window around the best score so far, re-searching with the full window 
+	 * only moves that score better (principal variation search)
+	 */
+	boolean principalVariationSearch = true;
+	
+	/**
+	 * half-width of the aspiration window around a previous iteration's score in which each iteration after the first is 
+	 * searched first, or 0 to search each iteration with a full window
+	 */
+	int aspirationWindow = 0;
+	long pvsResearches, aspirationResearches; // searches repeated after null-window fail-highs and aspiration window failures
+	
+	/**
+	 * number of threads searching each play: this thread and numThreads - 1 Lazy SMP helper searches, which search the same 
+	 * state in parallel and share their results through the transposition table
+	 */
+	int numThreads = 1;
+	PPStateMinimax[] helpers;
+	Future<?>[] helperFutures;
+	ExecutorService helperPool;
+	PPStateMinimax mainSearch; // for a helper search, the search it helps
+	volatile boolean helpersStopped; // whether helper searches should stop
+	long totalNodeCount; // search nodes of the last play, counting those of helper searches
+	long searchNanos; // duration of the last play search
+	
+	/**
+	 * working copy of this state for search
+	 */
+	PPState searchState;
+	
+	/**
+	 * Create a player of the default SIZE board with a default transposition table and endgame solver.
+	 */
+	public PPStateMinimax() {
+		this(GEOMETRY);
+	}
+	
+	/**
+	 * Create a player of the default SIZE board with a default transposition table and endgame solver.
+	 * @param maxCallDepth - maximum negamax search depth
+	 */
+	public PPStateMinimax(int maxCallDepth) {
+		this(GEOMETRY, maxCallDepth);
+	}
+	
+	/**
+	 * Create a player with a default transposition table and, on boards with bitboards, a default endgame solver.
+	 * @param geometry - geometry of the board, e.g. PPGeometry.forSize(size)
+	 */
+	public PPStateMinimax(PPGeometry geometry) {
+		this(geometry, geometry.maxGamePlies);
+	}
+	
+	/**
+	 * Create a player with a default transposition table and, on boards with bitboards, a default endgame solver.
+	 * @param geometry - geometry of the board, e.g. PPGeometry.forSize(size)
+	 * @param maxCallDepth - maximum negamax search depth
+	 */
+	public PPStateMinimax(PPGeometry geometry, int maxCallDepth) {
+		this(geometry, maxCallDepth, new PPTranspositionTable());
+		if (bitboards)
+			endgameSolver = new PPEndgameSolver();
+	}
+	
+	/**
+	 * Create a player of the default SIZE board searching with the given transposition table and without an endgame solver.
+	 * @param maxCallDepth - maximum negamax search depth
+	 * @param transpositionTable - transposition table, or null to search without one
+	 */
+	public PPStateMinimax(int maxCallDepth, PPTranspositionTable transpositionTable) {
+		this(GEOMETRY, maxCallDepth, transpositionTable);
+	}
+	
+	/**
+	 * Create a player searching with the given transposition table and without an endgame solver, as do Lazy SMP helper
+	 * and ponder searches.
+	 * @param geometry - geometry of the board, e.g. PPGeometry.forSize(size)
+	 * @param maxCallDepth - maximum negamax search depth
+	 * @param transpositionTable - transposition table, or null to search without one
+	 */
+	public PPStateMinimax(PPGeometry geometry, int maxCallDepth, PPTranspositionTable transpositionTable) {
+		super(geometry);
+		this.maxCallDepth = maxCallDepth;
+		this.transpositionTable = transpositionTable;
+	}
+	
+	/**
+	 * Set the number of search threads.  With more than one thread, Lazy SMP helper searches require a transposition table.
+	 * @param numThreads - number of threads searching each play
+	 */
+	public void setNumThreads(int numThreads) {
+		if (helperPool != null)
+			helperPool.shutdown();
+		helperPool = null;
+		helpers = null;
+		helperFutures = null;
+		this.numThreads = Math.max(1, numThreads);
+	}
+	
+	/**
+	 * Set the evaluator of states at the search depth limit.  Helper and ponder searches use copies of it.
+	 * @param evaluator - evaluator, or null to evaluate states with simpleEval
+	 * @throws IllegalArgumentException if an evaluator is given for a board without bitboards, on which PPEvaluator 
+	 * implementations cannot evaluate
+	 */
+	public void setEvaluator(PPEvaluator evaluator) {
+		if (evaluator != null && !bitboards)
+			throw new IllegalArgumentException("Evaluators require a board of at most 64 positions");
+		this.evaluator = evaluator;
+	}
 	
 	/**
 	 * getName - get the name of the player
 	 * @return the name of the player
 	 */
 	public String getName() {
-		return "Neller_NEGAMAX_AB_DEPTH_" + maxCallDepth;
+		return "Neller_NEGAMAX_AB_ID_MAXDEPTH_" + maxCallDepth;
 	}
 	
 	/**
-	 * getPlay - get the chosen play
+	 * getPlay - get the chosen play.  Searches with iterative deepening, allocating to this decision an equal share of the remaining
+	 * time over the expected number of remaining moves.  A new iteration is not begun after half of the allocation has elapsed, and 
+	 * an iteration still running after twice the allocation (or all remaining time less a small reserve) is aborted in favor of the 
+	 * play from the last completed iteration.
 	 * @param millisRemaining - player decision-making milliseconds remaining in the game. 
-	 * @return an int array of length 3 containing the Amazon source position, Amazon destination position, and Amazon shot position.
+	 * @return an int array of length 2 containing the penguin source position and penguin destination position.  In the case of an initial piece placement, the source position is -1.
 	 * Each position is encoded in zero-based row-major form, i.e. for row r and column c on a SIZE-by-SIZE board, the position p is
 	 * (r * SIZE + c).  For position p, r = p / SIZE; c = p % SIZE;
 	 */
 	public int[] getPlay(long millisRemaining) {
+		startNanos = System.nanoTime();
+		totalNodeCount = 0;
+		ponderPlayer = currentPlayer;
+		boolean hit = ponderHit;
+		ponderHit = false;
+		if (!hit || !hasLegalMove())
+			stopPondering();
 		if (!hasLegalMove()) {
 			play[0] = play[1] = -1;
 			return play;
 		}
-//		long startTime = System.currentTimeMillis();
-//		long expMovesRemaining = ((SIZE * SIZE - 8) - turnsTaken) / 2;
-//		long decisionMillis = millisRemaining / expMovesRemaining;
-		//  Get move
-		negamax(new PPState(this), maxCallDepth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
-		play[0] = bestSrcPos;
-		play[1] = bestDestPos;
+		// Allocate time.  Each move uses up one empty position, so we can expect at most half of the empty positions to be our moves.
+		long expMovesRemaining = Math.max(1, numEmpty() / 2);
+		long budgetMillis = Math.max(0, millisRemaining - RESERVE_MILLIS);
+		long decisionMillis = budgetMillis / expMovesRemaining;
+		long hardMillis = (decisionMillis > budgetMillis / 2) ? budgetMillis : 2 * decisionMillis;
+		stopNanos = (hardMillis > Long.MAX_VALUE / 2000000) ? Long.MAX_VALUE : hardMillis * 1000000;
+		long softNanos = (decisionMillis > Long.MAX_VALUE / 2000000) ? Long.MAX_VALUE : decisionMillis * 500000;
+		
+		// After a ponder hit, the ponder search becomes the search of this play.  Time spent pondering counts toward the time 
+		// allocation, so that a long ponder yields an instant play.
+		if (hit) {
+			long waitNanos = softNanos - (System.nanoTime() - ponderStartNanos);
+			if (waitNanos > 0)
+				try {
+					ponderFuture.get(waitNanos, TimeUnit.NANOSECONDS);
+				}
+				catch (TimeoutException e) {
+					// stop pondering below
+				}
+				catch (Exception e) {
+					throw new RuntimeException("Ponder search failed", e);
+				}
+			PPStateMinimax ponder = ponderSearch;
+			stopPondering();
+			if (ponder.completedDepth > 0) {
+				play[0] = moveSrcPos(ponder.ponderPlay);
+				play[1] = moveDestPos(ponder.ponderPlay);
+				completedDepth = ponder.completedDepth;
+				totalNodeCount = nodeCount = ponder.nodeCount;
+				searchNanos = System.nanoTime() - startNanos;
+				return play;
+			}
+		}
+		
+		// Play from the opening book
+		if (openingBook != null && turnsTaken < TOTAL_PIECES) {
+			int move = openingBook.lookup(this);
+			if (move != NO_MOVE) {
+				play[0] = moveSrcPos(move);
+				play[1] = moveDestPos(move);
+				totalNodeCount = nodeCount = 0;
+				searchNanos = System.nanoTime() - startNanos;
+				return play;
+			}
+		}
+		
+		// Play exactly once the regions are partitioned and small enough to solve
+		if (endgameSolver != null) {
+			long solverNodes = Math.min(endgameSolver.maxNodes, Math.min(decisionMillis, Long.MAX_VALUE / ENDGAME_NODES_PER_MILLI) * ENDGAME_NODES_PER_MILLI);
+			if (endgameSolver.solve(this, solverNodes)) {
+				play[0] = endgameSolver.bestSrcPos;
+				play[1] = endgameSolver.bestDestPos;
+				totalNodeCount = nodeCount = endgameSolver.nodeCount;
+				searchNanos = System.nanoTime() - startNanos;
+				return play;
+			}
+		}
+		
+		//  Get move by iterative deepening
+		if (searchState == null)
+			searchState = new PPState(this);
+		else
+			searchState.copy(this);
+		beginSearch();
+		if (transpositionTable != null)
+			transpositionTable.newSearch();
+		boolean helped = numThreads > 1 && transpositionTable != null;
+		if (helped)
+			startHelpers();
+		long startTTProbes = ttProbes, startTTHits = ttHits, startTTCutoffs = ttCutoffs;
+		if (stats != null)
+			stats.beginSearch();
+		int score = 0, previousScore = 0;
+		for (int depth = 1; depth <= maxCallDepth; depth++) {
+			// Center the aspiration window on the score of the last iteration of the same depth parity, since scores alternate 
+			// with the parity of the player to move at the depth limit
+			int centerScore = (depth > 2) ? previousScore : score;
+			previousScore = score;
+			score = searchRoot(depth, centerScore);
+			if (stats != null)
+				stats.endIteration(depth, nodeCount, System.nanoTime() - startNanos, score, searchAborted);
+			if (searchAborted)
+				break; // keep the play of the last completed iteration
+			play[0] = bestSrcPos;
+			play[1] = bestDestPos;
+			completedDepth = depth;
+			if (!depthCutoff || System.nanoTime() - startNanos >= softNanos)
+				break; // out of time, or the game tree has been searched to its end
+		}
+		totalNodeCount += nodeCount;
+		if (helped)
+			stopHelpers();
+		searchNanos = System.nanoTime() - startNanos;
+		if (stats != null) {
+			stats.nodes = nodeCount;
+			stats.helperNodes = totalNodeCount - nodeCount;
+			stats.ttProbes = ttProbes - startTTProbes;
+			stats.ttHits = ttHits - startTTHits;
+			stats.ttCutoffs = ttCutoffs - startTTCutoffs;
+			stats.searchNanos = searchNanos;
+			stats.principalVariationLength = principalVariation(stats.principalVariation, completedDepth);
+			stats.endSearch();
+		}
 		return play;
 	}
 	
-	private double negamax(PPState state, int depthRemaining) {
-		if (state.gameOver() || depthRemaining == 0)
+	/**
+	 * Follow the principal variation of the last search through the transposition table from the searched state: the play, 
+	 * then each stored best move that is legal in the state it leads to.
+	 * @param pv - array to receive the packed moves (see PPState.packMove) of the principal variation
+	 * @param maxLength - greatest number of moves to follow
+	 * @return the number of moves of the principal variation
+	 */
+	int principalVariation(int[] pv, int maxLength) {
+		if (completedDepth == 0)
+			return 0;
+		maxLength = Math.min(maxLength, pv.length);
+		PPState state = new PPState(searchState);
+		int length = 0;
+		int move = packMove(play[0], play[1]);
+		while (true) {
+			pv[length++] = move;
+			state.makeMove(moveSrcPos(move), moveDestPos(move));
+			if (length == maxLength || transpositionTable == null)
+				break;
+			long entry = transpositionTable.probe(state.hash);
+			if (entry == 0)
+				break;
+			move = PPTranspositionTable.move(entry);
+			if (!state.isLegalMove(moveSrcPos(move), moveDestPos(move)))
+				break;
+		}
+		return length;
+	}
+	
+	/**
+	 * Search searchState to the given depth.  With an aspirationWindow, an iteration after the first is searched within the window
+	 * around an expected score (unless that score is a game result), and searched again with the failing side of the window 
+	 * opened if its score falls outside the window.
+	 * @param depth - search depth
+	 * @param expectedScore - expected score from a previous iteration
+	 * @return the negamax score of searchState
+	 */
+	int searchRoot(int depth, int expectedScore) {
+		int atLeast = -INFINITE_SCORE, atMost = INFINITE_SCORE;
+		if (aspirationWindow > 0 && depth > 1 && Math.abs(expectedScore) < WIN_SCORE) {
+			atLeast = expectedScore - aspirationWindow;
+			atMost = expectedScore + aspirationWindow;
+		}
+		while (true) {
+			depthCutoff = false;
+			rootDepth = depth;
+			moveStackTop = 0;
+			int score = negamax(searchState, depth, atLeast, atMost);
+			if (searchAborted)
+				return score;
+			if (score <= atLeast && atLeast != -INFINITE_SCORE)
+				atLeast = -INFINITE_SCORE;
+			else if (score >= atMost && atMost != INFINITE_SCORE)
+				atMost = INFINITE_SCORE;
+			else
+				return score;
+			aspirationResearches++;
+		}
+	}
+	
+	/**
+	 * Reset search counters and move ordering for a new search of searchState.
+	 */
+	void beginSearch() {
+		nodeCount = 0;
+		cutoffNodes = firstMoveCutoffs = 0;
+		pvsResearches = aspirationResearches = 0;
+		searchAborted = false;
+		completedDepth = 0;
+		Arrays.fill(killers, NO_MOVE);
+		ageHistory();
+	}
+	
+	/**
+	 * Start numThreads - 1 helper searches of this state on pool threads.
+	 */
+	void startHelpers() {
+		if (helpers == null) {
+			helpers = new PPStateMinimax[numThreads - 1];
+			helperFutures = new Future<?>[numThreads - 1];
+			helperPool = Executors.newFixedThreadPool(numThreads - 1, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PPStateMinimax helper");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			for (int i = 0; i < helpers.length; i++) {
+				helpers[i] = new PPStateMinimax(geometry, maxCallDepth, transpositionTable);
+				helpers[i].mainSearch = this;
+				helpers[i].searchState = new PPState(this);
+			}
+		}
+		helpersStopped = false;
+		for (int i = 0; i < helpers.length; i++) {
+			final PPStateMinimax helper = helpers[i];
+			final int firstDepth = 1 + (i + 1) % 2; // start half of the helpers one ply deeper, so that threads search different states
+			helper.searchState.copy(this);
+			helper.maxCallDepth = maxCallDepth;
+			helper.transpositionTable = transpositionTable;
+			helper.moveOrdering = moveOrdering;
+			helper.ttMoveFirst = ttMoveFirst;
+			helper.principalVariationSearch = principalVariationSearch;
+			helper.evaluator = (evaluator == null) ? null : evaluator.copy();
+			helperFutures[i] = helperPool.submit(new Runnable() {
+				public void run() {
+					helper.helperSearch(firstDepth);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Stop the helper searches, wait for them to finish, and add their search nodes to totalNodeCount.
+	 */
+	void stopHelpers() {
+		helpersStopped = true;
+		for (int i = 0; i < helpers.length; i++) {
+			try {
+				helperFutures[i].get();
+			}
+			catch (Exception e) {
+				throw new RuntimeException("Helper search failed", e);
+			}
+			totalNodeCount += helpers[i].nodeCount;
+		}
+	}
+	
+	/**
+	 * Search searchState by iterative deepening until the main search stops helper searches.  Results are shared only through
+	 * the transposition table.
+	 * @param firstDepth - depth of the first iteration
+	 */
+	void helperSearch(int firstDepth) {
+		beginSearch();
+		for (int depth = firstDepth; depth <= maxCallDepth; depth++) {
+			depthCutoff = false;
+			rootDepth = depth;
+			moveStackTop = 0;
+			negamax(searchState, depth, -INFINITE_SCORE, INFINITE_SCORE);
+			if (searchAborted || !depthCutoff)
+				break;
+		}
+	}
+	
+	/**
+	 * @return whether the current search must stop: for a helper search, when the main search stops it, and otherwise when the 
+	 * current iteration has run past the time allocation (the first iteration always completes, so that there is a play to fall back on)
+	 */
+	boolean outOfTime() {
+		if (mainSearch != null)
+			return mainSearch.helpersStopped;
+		return ponderStopped || completedDepth > 0 && System.nanoTime() - startNanos > stopNanos;
+	}
+	
+	/**
+	 * Set the pondering mode.  While pondering, this player searches on a background thread from the time it makes its own play 
+	 * until the opponent's play is made (see makeMove).
+	 * @param ponderMode - NO_PONDER, PONDER_PREDICTED, or PONDER_ALL
+	 */
+	public void setPonderMode(int ponderMode) {
+		stopPondering();
+		this.ponderMode = ponderMode;
+	}
+	
+	/**
+	 * Make the given play.  The opponent's play stops pondering unless it is the predicted reply, in which case the ponder search
+	 * continues until getPlay.  This player's own play starts pondering.
+	 * @param srcPos - piece source position, or -1 for a placement or pass
+	 * @param destPos - piece destination position, or -1 for a pass
+	 */
+	public void makeMove(int srcPos, int destPos) {
+		if (ponderFuture != null) {
+			if (ponderMove != NO_MOVE && ponderMove == packMove(srcPos, destPos) && !ponderHit) {
+				ponderHits++;
+				ponderHit = true;
+			}
+			else {
+				if (ponderMove != NO_MOVE)
+					ponderMisses++;
+				stopPondering();
+			}
+		}
+		boolean ownPlay = currentPlayer == ponderPlayer;
+		super.makeMove(srcPos, destPos);
+		if (ponderMode != NO_PONDER && ownPlay && !gameOver())
+			startPondering();
+	}
+	
+	public void unmakeMove(int srcPos, int destPos) {
+		stopPondering();
+		super.unmakeMove(srcPos, destPos);
+	}
+	
+	public void init(long seed) {
+		stopPondering();
+		ponderPlayer = 0;
+		super.init(seed);
+	}
+	
+	/**
+	 * Forget what the searches of previous games learned: transposition table entries, history, and killer moves.  A player 
+	 * reused for a new game (e.g. by PPArena) calls this before init so that its play does not depend on earlier games.
+	 */
+	public void clearTables() {
+		stopPondering();
+		if (transpositionTable != null)
+			transpositionTable.clear();
+		Arrays.fill(history, 0);
+		Arrays.fill(killers, NO_MOVE);
+		if (helpers != null)
+			for (PPStateMinimax helper : helpers) {
+				Arrays.fill(helper.history, 0);
+				Arrays.fill(helper.killers, NO_MOVE);
+			}
+	}
+	
+	/**
+	 * Start pondering during the opponent's turn: in mode PONDER_PREDICTED, search the state after the opponent reply predicted by 
+	 * the transposition table (if any); otherwise, search the opponent's state to fill the transposition table.
+	 */
+	void startPondering() {
+		ponderMove = NO_MOVE;
+		if (ponderMode == PONDER_PREDICTED) {
+			if (!hasLegalMove())
+				ponderMove = PASS_MOVE;
+			else if (transpositionTable != null) {
+				long entry = transpositionTable.probe(hash);
+				if (entry != 0 && isLegalMove(moveSrcPos(PPTranspositionTable.move(entry)), moveDestPos(PPTranspositionTable.move(entry))))
+					ponderMove = PPTranspositionTable.move(entry);
+			}
+		}
+		if (ponderSearch == null) {
+			ponderSearch = new PPStateMinimax(geometry, maxCallDepth, transpositionTable);
+			ponderPool = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "PPStateMinimax ponder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		final PPStateMinimax ponder = ponderSearch;
+		ponder.copy(this);
+		if (ponderMove != NO_MOVE) {
+			ponder.makeMove(moveSrcPos(ponderMove), moveDestPos(ponderMove));
+			if (ponder.gameOver())
+				return;
+		}
+		ponder.maxCallDepth = maxCallDepth;
+		ponder.transpositionTable = transpositionTable;
+		ponder.moveOrdering = moveOrdering;
+		ponder.ttMoveFirst = ttMoveFirst;
+		ponder.principalVariationSearch = principalVariationSearch;
+		ponder.evaluator = (evaluator == null) ? null : evaluator.copy();
+		ponder.ponderStopped = false;
+		ponderStartNanos = System.nanoTime();
+		ponderFuture = ponderPool.submit(new Runnable() {
+			public void run() {
+				ponder.ponderSearch();
+			}
+		});
+	}
+	
+	/**
+	 * Stop pondering, if pondering, and wait for the ponder search to finish.
+	 */
+	void stopPondering() {
+		if (ponderFuture == null)
+			return;
+		ponderSearch.ponderStopped = true;
+		try {
+			ponderFuture.get();
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Ponder search failed", e);
+		}
+		ponderFuture = null;
+		ponderHit = false;
+	}
+	
+	/**
+	 * Stop pondering and shut down the helper and ponder threads.  The player remains usable and starts new threads as needed.
+	 */
+	public void close() {
+		stopPondering();
+		if (ponderPool != null)
+			ponderPool.shutdown();
+		ponderPool = null;
+		ponderSearch = null;
+		setNumThreads(numThreads);
+	}
+	
+	/**
+	 * Search this state by iterative deepening until stopped or searched to the end of the game, recording the best play of each
+	 * completed iteration in ponderPlay.
+	 */
+	void ponderSearch() {
+		if (searchState == null)
+			searchState = new PPState(this);
+		else
+			searchState.copy(this);
+		startNanos = System.nanoTime();
+		stopNanos = Long.MAX_VALUE;
+		beginSearch();
+		for (int depth = 1; depth <= maxCallDepth; depth++) {
+			depthCutoff = false;
+			rootDepth = depth;
+			moveStackTop = 0;
+			negamax(searchState, depth, -INFINITE_SCORE, INFINITE_SCORE);
+			if (searchAborted)
+				break;
+			ponderPlay = packMove(bestSrcPos, bestDestPos);
+			completedDepth = depth;
+			if (!depthCutoff)
+				break;
+		}
+	}
+	
+	private int negamax(PPState state, int depthRemaining) {
+		if (state.gameOver())
+			return terminalScore(state);
+		if (depthRemaining == 0)
 			return state.simpleEval();
 //		String prefix = "                                      ".substring(0,10-depthRemaining);
 //		String player = (currentPlayer == SQUARE) ? "SQUARE" : "CIRCLE";
-			state.computeLegalMoves();
-			int numLegalMoves = state.legalMoveCount;
-			int[] srcPositions = state.legalMoves[0].clone();
-			int[] destPositions = state.legalMoves[1].clone();
-			double qBest = Double.NEGATIVE_INFINITY;
-			int bestMove = 0;
-			for (int i = 0; i < numLegalMoves; i++) {
-				int srcPos = srcPositions[i];
-				int destPos = destPositions[i];
+			int first = moveStackTop;
+			int end = first + state.generateMoves(moveStack, first);
+			if (end == first)
+				moveStack[end++] = PASS_MOVE; // the game is not over, so the other player can move
+			moveStackTop = end;
+			int qBest = -INFINITE_SCORE;
+			int bestMove = first;
+			for (int i = first; i < end; i++) {
+				int srcPos = moveSrcPos(moveStack[i]);
+				int destPos = moveDestPos(moveStack[i]);
 				state.makeMove(srcPos, destPos);
-				double q = -negamax(state, depthRemaining - 1);
+				int q = -negamax(state, depthRemaining - 1);
 //				System.out.printf("%s%s MOVE%s%f\n", prefix, player, (q > qBest) ? "*" : " ", q);
 				if (q > qBest) {
 					qBest = q;
@@ -63,8 +751,9 @@ public class PPStateMinimax extends PPState {
 //				}
 				state.unmakeMove(srcPos, destPos);
 			}
-			bestSrcPos = srcPositions[bestMove];
-			bestDestPos = destPositions[bestMove];
+			moveStackTop = first;
+			bestSrcPos = moveSrcPos(moveStack[bestMove]);
+			bestDestPos = moveDestPos(moveStack[bestMove]);
 //			System.out.printf("%sMAX: %f\n", prefix, qBest);
 			return qBest;
 		
@@ -78,47 +767,209 @@ public class PPStateMinimax extends PPState {
 	 * @param atMost play through this state should score at most this amount (or prune)
 	 * @return
 	 */
-	private double negamax(PPState state, int depthRemaining, double atLeast, double atMost) {
-		if (state.gameOver() || depthRemaining == 0)
-			return state.simpleEval();
+	private int negamax(PPState state, int depthRemaining, int atLeast, int atMost) {
+		if (++nodeCount % NODES_PER_TIME_CHECK == 0 && outOfTime())
+			searchAborted = true;
+		if (searchAborted)
+			return 0;
+		if (stats != null)
+			stats.plyNodes[rootDepth - depthRemaining]++;
+		if (state.gameOver())
+			return terminalScore(state);
+		if (depthRemaining == 0) {
+			depthCutoff = true;
+			if (stats != null)
+				stats.leafEvals++;
+			return (evaluator == null) ? state.simpleEval() : evaluator.evaluate(state);
+		}
+		// Probe the transposition table for a score bound that decides this state, or for a best move to search first
+		int originalAtLeast = atLeast;
+		int ttMove = NO_MOVE;
+		if (transpositionTable != null) {
+			ttProbes++;
+			long entry = transpositionTable.probe(state.hash);
+			if (entry != 0) {
+				ttHits++;
+				ttMove = PPTranspositionTable.move(entry);
+				if (depthRemaining < rootDepth && PPTranspositionTable.depth(entry) >= depthRemaining) {
+					int ttScore = PPTranspositionTable.score(entry);
+					int bound = PPTranspositionTable.bound(entry);
+					if (bound == PPTranspositionTable.EXACT 
+							|| (bound == PPTranspositionTable.LOWER_BOUND && ttScore >= atMost) 
+							|| (bound == PPTranspositionTable.UPPER_BOUND && ttScore <= atLeast)) {
+						ttCutoffs++;
+						if (PPTranspositionTable.depth(entry) != SOLVED_DEPTH)
+							depthCutoff = true;
+						return ttScore;
+					}
+				}
+			}
+		}
 //		String prefix = "                                      ".substring(0,10-depthRemaining);
 //		String player = (currentPlayer == SQUARE) ? "SQUARE" : "CIRCLE";
-			state.computeLegalMoves();
-			int numLegalMoves = state.legalMoveCount;
-			int[] srcPositions = state.legalMoves[0].clone();
-			int[] destPositions = state.legalMoves[1].clone();
-			double qBest = Double.NEGATIVE_INFINITY;
-			int bestMove = 0;
-			for (int i = 0; i < numLegalMoves; i++) {
-				int srcPos = srcPositions[i];
-				int destPos = destPositions[i];
+			// Generate moves onto the move stack above those of the ancestor states
+			int first = moveStackTop;
+			int numLegalMoves = state.generateMoves(moveStack, first);
+			if (numLegalMoves == 0)
+				moveStack[first + numLegalMoves++] = PASS_MOVE; // the game is not over, so the other player can move
+			int end = first + numLegalMoves;
+			moveStackTop = end;
+			int ply = rootDepth - depthRemaining;
+			if (stats != null) {
+				stats.interiorNodes++;
+				stats.movesGenerated += numLegalMoves;
+			}
+			if (moveOrdering)
+				scoreMoves(state, first, end, ttMove, ply);
+			else if (ttMoveFirst)
+				for (int i = first + 1; i < end; i++) // search the transposition table best move first
+					if (moveStack[i] == ttMove) {
+						moveStack[i] = moveStack[first];
+						moveStack[first] = ttMove;
+						break;
+					}
+			int qBest = -INFINITE_SCORE;
+			int bestMove = first;
+			boolean ancestorDepthCutoff = depthCutoff;
+			depthCutoff = false;
+			for (int i = first; i < end; i++) {
+				if (moveOrdering)
+					selectMove(i, end);
+				int srcPos = moveSrcPos(moveStack[i]);
+				int destPos = moveDestPos(moveStack[i]);
 				state.makeMove(srcPos, destPos);
-				double q = -negamax(state, depthRemaining - 1, -atMost, -atLeast);
+				int q;
+				if (i == first || !principalVariationSearch)
+					q = -negamax(state, depthRemaining - 1, -atMost, -atLeast);
+				else {
+					q = -negamax(state, depthRemaining - 1, -atLeast - 1, -atLeast); // does this move score better than atLeast?
+					if (q > atLeast && q < atMost && !searchAborted) {
+						pvsResearches++;
+						q = -negamax(state, depthRemaining - 1, -atMost, -atLeast);
+					}
+				}
 				state.unmakeMove(srcPos, destPos);
+				if (searchAborted)
+					return 0;
 //				System.out.printf("%s%s MOVE%s%f\n", prefix, player, (q > qBest) ? "*" : " ", q);
 				if (q > qBest) {
 					qBest = q;
 					bestMove = i;
 					if (q > atLeast)
 						atLeast = q;
-					if (atLeast > atMost) break; // pruning condition
+					if (atLeast >= atMost) { // pruning condition
+						cutoffNodes++;
+						if (i == first)
+							firstMoveCutoffs++;
+						if (stats != null)
+							stats.plyCutoffs[ply]++;
+						if (moveOrdering)
+							recordCutoff(moveStack[i], ply, depthRemaining);
+						break;
+					}
 				}
 //				if (depthRemaining == 2) {
 //					System.out.printf("%d-%d(%d):%f\n", srcPos, destPos, this.bestShotPos, q);
 //				}
 			}
-			bestSrcPos = srcPositions[bestMove];
-			
-			bestDestPos = destPositions[bestMove];
+			moveStackTop = first;
+			bestSrcPos = moveSrcPos(moveStack[bestMove]);
+			bestDestPos = moveDestPos(moveStack[bestMove]);
+			if (transpositionTable != null) {
+				int bound = (qBest <= originalAtLeast) ? PPTranspositionTable.UPPER_BOUND 
+						: (qBest >= atMost) ? PPTranspositionTable.LOWER_BOUND : PPTranspositionTable.EXACT;
+				// a result found without any depth cutoff holds at any depth
+				transpositionTable.store(state.hash, depthCutoff ? Math.min(depthRemaining, SOLVED_DEPTH - 1) : SOLVED_DEPTH, bound, qBest, moveStack[bestMove]);
+			}
+			depthCutoff |= ancestorDepthCutoff;
 //			System.out.printf("%sMAX: %f\n", prefix, qBest);
 			return qBest;
 		
 	}
 	
+	/**
+	 * Score moves moveStack[first..end-1] for search order: the transposition table move, then the killer moves of this ply, then 
+	 * by history, with ties broken by destination fish.
+	 * @param state - state of the moves
+	 * @param first - index of the first move
+	 * @param end - index after the last move
+	 * @param ttMove - transposition table move, or NO_MOVE
+	 * @param ply - search depth of the state
+	 */
+	void scoreMoves(PPState state, int first, int end, int ttMove, int ply) {
+		int killer0 = killers[2 * ply], killer1 = killers[2 * ply + 1];
+		for (int i = first; i < end; i++) {
+			int move = moveStack[i];
+			if (move == ttMove)
+				moveScores[i] = TT_MOVE_SCORE;
+			else if (move == killer0)
+				moveScores[i] = KILLER_MOVE_SCORE;
+			else if (move == killer1)
+				moveScores[i] = KILLER_MOVE_SCORE - 1;
+			else if (move == PASS_MOVE)
+				moveScores[i] = 0;
+			else
+				moveScores[i] = (history[move] << 2) + state.grid[moveDestPos(move)];
+		}
+	}
+	
+	/**
+	 * Swap the highest scoring move of moveStack[i..end-1] into index i.
+	 * @param i - index of the next move to search
+	 * @param end - index after the last move
+	 */
+	void selectMove(int i, int end) {
+		int best = i;
+		for (int j = i + 1; j < end; j++)
+			if (moveScores[j] > moveScores[best])
+				best = j;
+		if (best != i) {
+			int move = moveStack[best];
+			moveStack[best] = moveStack[i];
+			moveStack[i] = move;
+			int score = moveScores[best];
+			moveScores[best] = moveScores[i];
+			moveScores[i] = score;
+		}
+	}
+	
+	/**
+	 * Update killer moves and history for a move that caused a cutoff.
+	 * @param move - packed move
+	 * @param ply - search depth of the state
+	 * @param depthRemaining - search depth remaining at the state
+	 */
+	void recordCutoff(int move, int ply, int depthRemaining) {
+		if (killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+		if ((history[move] += depthRemaining * depthRemaining) > MAX_HISTORY)
+			ageHistory();
+	}
+	
+	/**
+	 * Halve all history values, so that recent cutoffs count for more.
+	 */
+	void ageHistory() {
+		for (int i = 0; i < history.length; i++)
+			history[i] >>= 1;
+	}
+	
+	/**
+	 * @param state - a state where the game is over
+	 * @return the exact negamax score of the finished game for the player to move: WIN_SCORE plus the score margin for a win, 
+	 * LOSS_SCORE plus the (negative) score margin for a loss, or DRAW_SCORE for a draw
+	 */
+	static int terminalScore(PPState state) {
+		int margin = (state.currentPlayer == SQUARE) ? state.score[0] - state.score[1] : state.score[1] - state.score[0];
+		return (margin > 0) ? WIN_SCORE + margin : (margin < 0) ? LOSS_SCORE + margin : DRAW_SCORE;
+	}
+	
 	int[] playoutPieceScoreVector = new int[TOTAL_PIECES];
 	public double[] randomPlayoutBoardEval(PPState state, int numPlayouts) {
-		double[] posValues = new double[NUM_POS];
-		int[] posCounts = new int[NUM_POS];
+		double[] posValues = new double[state.numPos];
+		int[] posCounts = new int[state.numPos];
 		if (state.gameOver())
 			return posValues;
 		for (int p = 0; p < numPlayouts; p++) {
@@ -126,7 +977,7 @@ public class PPStateMinimax extends PPState {
 				playoutPieceScoreVector[i] = 0;
 			//randomBoardEvalPlayout(state);
 		}
-		for (int i = 0; i < NUM_POS; i++)
+		for (int i = 0; i < state.numPos; i++)
 			posValues[i] /= posCounts[i];
 		return posValues;
 		
@@ -145,37 +996,29 @@ public class PPStateMinimax extends PPState {
 		long gameMillis = 1000000;
 		long startMillis = System.currentTimeMillis();
 		state.init(0);
+		PPGameRecord record = new PPGameRecord(state.getSize(), 0, state.getCurrentPlayer());
 		int[] play = null;
 		while (!state.gameOver()) {
-			if (exporting) {
-				ArrayList<Integer> highlights = new ArrayList<Integer>();
-				if (play != null) {
-					if (play[0] >= 0)
-						highlights.add(play[0]);
-					highlights.add(play[1]);
-				}
-				PPView.exportSVG("PPFig" + state.turnsTaken, state, highlights);
-			}
 			System.out.println(state.boardToString());
 			play = state.getPlay((gameMillis - (System.currentTimeMillis() - startMillis)) / 2);
 			System.out.println(state.moveToString(play[0], play[1]));
 			System.out.println();
 			state.makeMove(play[0], play[1]);
+			record.add(play[0], play[1]);
 		}
 		System.out.println(state.boardToString());
 		if (state.getWinner() == 0)
 			System.out.println("Draw.");
 		else
 			System.out.printf("%s wins.", state.getWinner() == SQUARE ? SQUARE_CHAR : CIRCLE_CHAR);
-		if (exporting) {
-			ArrayList<Integer> highlights = new ArrayList<Integer>();
-			if (play != null) {
-				if (play[0] >= 0)
-					highlights.add(play[0]);
-				highlights.add(play[1]);
+		if (exporting)
+			try {
+				PPSVGRenderer.forSize(state.getSize()).writeAnimation("PPGame.svg", record, 1000);
+				PPSVGRenderer.forSize(state.getSize()).writePager("PPGame.html", record);
+			}
+			catch (IOException e) {
+				e.printStackTrace();
 			}
-			PPView.exportSVG("PPFigEnd", state, highlights);
-		}
 		// depth 3:
 		// without alpha-beta pruning:  68.793 sec
 		//    with alpha-beta pruning:  11.709 sec
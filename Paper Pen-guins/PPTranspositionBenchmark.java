@@ -0,0 +1,57 @@
+import java.util.Random;
+
+/**
+ * PPTranspositionBenchmark - compares iterative-deepening negamax search with and without a transposition table at
+ * depths 4 through 6, reporting search nodes, time, transposition table hit rate, and node reduction.
+ *
+ * Positions are taken from PaperPenguins boards of seeds 0, 1, ... after a number of seeded random plies.
+ *
+ * Usage: java PPTranspositionBenchmark [numPositions [randomPlies]]
+ */
+public class PPTranspositionBenchmark {
+
+	/**
+	 * Create a benchmark position.
+	 * @param player - player state to initialize
+	 * @param seed - PaperPenguins board seed, also used to seed random play
+	 * @param randomPlies - number of random plies to make from the initial state
+	 */
+	static void setUpPosition(PPState player, long seed, int randomPlies) {
+		player.init(seed);
+		Random random = new Random(seed);
+		for (int ply = 0; ply < randomPlies && !player.gameOver(); ply++) {
+			player.computeLegalMoves();
+			if (player.legalMoveCount == 0)
+				player.makeMove(-1, -1);
+			else {
+				int i = random.nextInt(player.legalMoveCount);
+				player.makeMove(player.legalMoves[0][i], player.legalMoves[1][i]);
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		int numPositions = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		int randomPlies = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		System.out.printf("%d positions after %d random plies\n", numPositions, randomPlies);
+		System.out.println("depth  nodes (no TT)    sec  nodes (TT)     sec  TT hit rate  node reduction");
+		for (int depth = 4; depth <= 6; depth++) {
+			long[] nodes = new long[2];
+			long[] nanos = new long[2];
+			long probes = 0, hits = 0;
+			for (int useTable = 0; useTable < 2; useTable++)
+				for (int i = 0; i < numPositions; i++) {
+					PPStateMinimax player = new PPStateMinimax(depth, (useTable == 1) ? new PPTranspositionTable() : null);
+					setUpPosition(player, i, randomPlies);
+					long startNanos = System.nanoTime();
+					player.getPlay(Long.MAX_VALUE);
+					nanos[useTable] += System.nanoTime() - startNanos;
+					nodes[useTable] += player.nodeCount;
+					probes += player.ttProbes;
+					hits += player.ttHits;
+				}
+			System.out.printf("%5d  %13d  %5.1f  %10d  %6.1f  %10.1f%%  %13.1f%%\n", depth, nodes[0], nanos[0] / 1e9, nodes[1], nanos[1] / 1e9,
+					100.0 * hits / Math.max(1, probes), 100.0 * (nodes[0] - nodes[1]) / nodes[0]);
+		}
+	}
+}
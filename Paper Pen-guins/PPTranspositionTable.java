@@ -0,0 +1,154 @@
+import java.util.Arrays;
+
+/**
+ * PPTranspositionTable - a fixed-size, lock-free transposition table of search results indexed by PPState Zobrist hash.
+ *
+ * Each entry is a pair of longs: the packed entry data, and the hash XORed with that data.  A reader that observes a torn
+ * write from another thread sees a key that does not match and treats the entry as a miss, so the table may be shared by
+ * concurrent searches without locking.
+ *
+ * Entry data is packed as follows:
+ * bits 0-31: score, bits 32-47: best move packed by PPState.packMove,
+ * bits 48-55: search depth, bits 56-57: bound type, bits 58-62: search generation, bit 63: always set to distinguish entries
+ * from empty slots.
+ */
+public class PPTranspositionTable {
+
+	/**
+	 * bound type of a score that is the exact negamax value
+	 */
+	public static final int EXACT = 0;
+
+	/**
+	 * bound type of a score that is a lower bound on the negamax value (the search failed high)
+	 */
+	public static final int LOWER_BOUND = 1;
+
+	/**
+	 * bound type of a score that is an upper bound on the negamax value (the search failed low)
+	 */
+	public static final int UPPER_BOUND = 2;
+
+	/**
+	 * replacement policy: always overwrite an entry with the latest result
+	 */
+	public static final int REPLACE_ALWAYS = 0;
+
+	/**
+	 * replacement policy: keep an entry from the current search unless the new result is searched at least as deep
+	 */
+	public static final int REPLACE_DEPTH_PREFERRED = 1;
+
+	/**
+	 * the default number of entries, a power of 2
+	 */
+	public static final int DEFAULT_SIZE = 1 << 20;
+
+	static final long ENTRY_FLAG = 1L << 63;
+
+	long[] keys;
+	long[] data;
+	int indexMask;
+	int replacementPolicy;
+	int generation;
+
+	public PPTranspositionTable() {
+		this(DEFAULT_SIZE, REPLACE_DEPTH_PREFERRED);
+	}
+
+	/**
+	 * @param size - number of entries, rounded down to a power of 2
+	 * @param replacementPolicy - REPLACE_ALWAYS or REPLACE_DEPTH_PREFERRED
+	 */
+	public PPTranspositionTable(int size, int replacementPolicy) {
+		size = Integer.highestOneBit(Math.max(size, 1));
+		keys = new long[size];
+		data = new long[size];
+		indexMask = size - 1;
+		this.replacementPolicy = replacementPolicy;
+	}
+
+	/**
+	 * Begin a new search.  Entries stored by previous searches become preferred for replacement.
+	 */
+	public void newSearch() {
+		generation = (generation + 1) & 0x1F;
+	}
+
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+	}
+
+	/**
+	 * @param hash - Zobrist hash of the state
+	 * @return packed entry data for the state, or 0 if there is no entry for the state
+	 */
+	public long probe(long hash) {
+		int index = (int) hash & indexMask;
+		long entry = data[index];
+		if ((keys[index] ^ entry) != hash || entry == 0)
+			return 0;
+		return entry;
+	}
+
+	/**
+	 * Store a search result, subject to the replacement policy.
+	 * @param hash - Zobrist hash of the state
+	 * @param depth - search depth remaining at the state
+	 * @param bound - EXACT, LOWER_BOUND, or UPPER_BOUND
+	 * @param score - negamax search score
+	 * @param move - best move packed by PPState.packMove
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		int index = (int) hash & indexMask;
+		if (replacementPolicy == REPLACE_DEPTH_PREFERRED) {
+			long old = data[index];
+			if (old != 0 && generation(old) == generation && depth(old) > depth && (keys[index] ^ old) != hash)
+				return;
+		}
+		long entry = ENTRY_FLAG | ((long) generation << 58) | ((long) bound << 56) | ((long) Math.min(depth, 0xFF) << 48)
+				| ((long) (move & 0xFFFF) << 32) | (score & 0xFFFFFFFFL);
+		data[index] = entry;
+		keys[index] = hash ^ entry;
+	}
+
+	/**
+	 * @param entry - packed entry data
+	 * @return the search depth of the entry
+	 */
+	public static int depth(long entry) {
+		return (int) (entry >>> 48) & 0xFF;
+	}
+
+	/**
+	 * @param entry - packed entry data
+	 * @return the bound type of the entry score
+	 */
+	public static int bound(long entry) {
+		return (int) (entry >>> 56) & 0x3;
+	}
+
+	/**
+	 * @param entry - packed entry data
+	 * @return the score of the entry
+	 */
+	public static int score(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * @param entry - packed entry data
+	 * @return the best move of the entry, packed by PPState.packMove
+	 */
+	public static int move(long entry) {
+		return (int) (entry >>> 32) & 0xFFFF;
+	}
+
+	static int generation(long entry) {
+		return (int) (entry >>> 58) & 0x1F;
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * PPVoronoiEval - a fish-weighted Voronoi evaluation.  Empty positions are divided between the players by queen-move distance
+ * as in PPDistanceEval, but the fish of a position count more the nearer it is to the player who holds it: DISTANCE_WEIGHTS[d]
+ * quarters of a fish at distance d, and one quarter beyond.  Nearby fish are the most likely to be collected before the board
+ * changes.  Values are in quarters of a fish, with the score margin weighted accordingly.
+ */
+public class PPVoronoiEval implements PPEvaluator {
+
+	/**
+	 * quarters of a fish counted for each fish of a held position at each distance
+	 */
+	static final int[] DISTANCE_WEIGHTS = {0, 4, 3, 2};
+
+	public int evaluate(PPState state) {
+		long empty = ~state.occupiedBits;
+		long squareReached = state.pieceBits[0], circleReached = state.pieceBits[1];
+		long squareFrontier = squareReached, circleFrontier = circleReached;
+		int count = 4 * (state.score[0] - state.score[1]);
+		for (int distance = 1; (squareFrontier | circleFrontier) != 0; distance++) {
+			squareFrontier = state.queenMoves(squareFrontier, empty) & ~squareReached;
+			circleFrontier = state.queenMoves(circleFrontier, empty) & ~circleReached;
+			int weight = (distance < DISTANCE_WEIGHTS.length) ? DISTANCE_WEIGHTS[distance] : 1;
+			count += weight * (state.fishSum(squareFrontier & ~circleReached & ~circleFrontier) - state.fishSum(circleFrontier & ~squareReached & ~squareFrontier));
+			squareReached |= squareFrontier;
+			circleReached |= circleFrontier;
+		}
+		return (state.currentPlayer == PPState.SQUARE) ? count : -count;
+	}
+
+	public PPEvaluator copy() {
+		return this;
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * PPWindowBenchmark - compares iterative-deepening negamax search with full windows, principal variation search (the default),
+ * aspiration windows, and both, reporting search nodes, time, re-searches, node reduction against full-window search, and the
+ * number of positions whose root score or play differs from the full-window search.
+ *
+ * Positions are set up as in PPTranspositionBenchmark.
+ *
+ * Usage: java PPWindowBenchmark [searchDepth [numPositions [randomPlies [aspirationWindow]]]]
+ */
+public class PPWindowBenchmark {
+
+	public static void main(String[] args) {
+		int searchDepth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int numPositions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int randomPlies = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int window = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+		System.out.printf("depth %d, %d positions after %d random plies, aspiration window +/-%d\n", searchDepth, numPositions, randomPlies, window);
+		System.out.println("search           nodes     sec  re-searches  node reduction  score/play differences");
+		String[] names = {"full window", "PVS", "aspiration", "PVS+aspiration"};
+		int[] scores = new int[numPositions], plays = new int[numPositions];
+		long fullNodes = 0;
+		for (int config = 0; config < names.length; config++) {
+			long nodes = 0, nanos = 0, researches = 0;
+			int scoreDifferences = 0, playDifferences = 0;
+			for (int i = 0; i < numPositions; i++) {
+				PPStateMinimax player = new PPStateMinimax(searchDepth);
+				player.principalVariationSearch = (config & 1) != 0;
+				player.aspirationWindow = ((config & 2) != 0) ? window : 0;
+				player.endgameSolver = null;
+				player.stats = new PPSearchStats();
+				PPTranspositionBenchmark.setUpPosition(player, i, randomPlies);
+				long startNanos = System.nanoTime();
+				int[] play = player.getPlay(Long.MAX_VALUE);
+				nanos += System.nanoTime() - startNanos;
+				nodes += player.nodeCount;
+				researches += player.pvsResearches + player.aspirationResearches;
+				int score = player.stats.iterationScore[player.stats.numIterations - 1];
+				int packedPlay = PPState.packMove(play[0], play[1]);
+				if (config == 0) {
+					scores[i] = score;
+					plays[i] = packedPlay;
+				}
+				else {
+					scoreDifferences += (score != scores[i]) ? 1 : 0;
+					playDifferences += (packedPlay != plays[i]) ? 1 : 0;
+				}
+			}
+			if (config == 0)
+				fullNodes = nodes;
+			System.out.printf("%-14s  %10d  %6.2f  %11d  %13.1f%%  %d/%d\n", names[config], nodes, nanos / 1e9, researches,
+					100.0 * (fullNodes - nodes) / fullNodes, scoreDifferences, playDifferences);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+
+import ppbench.EngineHotPaths;
+
+/**
+ * PPHotPaths - engine operations for the ppbench JMH benchmarks over a fixed corpus of positions.  The corpus of a game phase
+ * holds the unfinished positions reached from PaperPenguins boards of seeds 0, 1, ... after a fixed number of seeded random
+ * plies (see PPTranspositionBenchmark.setUpPosition), so every run measures the same positions.
+ */
+public class PPHotPaths implements EngineHotPaths {
+
+	/**
+	 * number of positions in each corpus
+	 */
+	public static final int CORPUS_SIZE = 16;
+
+	/**
+	 * transposition table entries of each corpus searcher
+	 */
+	static final int SEARCH_TABLE_SIZE = 1 << 14;
+
+	PPState[] corpus = new PPState[CORPUS_SIZE];
+	PPStateMinimax[] searchers = new PPStateMinimax[CORPUS_SIZE];
+	long[] seeds = new long[CORPUS_SIZE];
+	int[] moves = new int[PPState.MAX_LEGAL_MOVES];
+	PPEvaluator evaluator = new PPDistanceEval();
+	PPBoardFactory boardFactory = new PPBoardFactory(PPState.SIZE, PPBoardFactory.JAVA_RANDOM, 0);
+	int[] board = new int[PPState.NUM_POS];
+
+	/**
+	 * @param phase - game phase
+	 * @return the number of random plies to a position of the given phase
+	 */
+	static int phasePlies(String phase) {
+		if (phase.equals(PLACEMENT))
+			return 2;
+		if (phase.equals(OPENING))
+			return PPState.TOTAL_PIECES + 4;
+		if (phase.equals(MIDDLEGAME))
+			return 28;
+		if (phase.equals(ENDGAME))
+			return 48;
+		throw new IllegalArgumentException("Unknown game phase " + phase);
+	}
+
+	public void setUp(String phase, int searchDepth) {
+		int plies = phasePlies(phase);
+		long seed = 0;
+		for (int i = 0; i < CORPUS_SIZE; i++) {
+			PPStateMinimax searcher;
+			do {
+				searcher = new PPStateMinimax(searchDepth, new PPTranspositionTable(SEARCH_TABLE_SIZE, PPTranspositionTable.REPLACE_DEPTH_PREFERRED));
+				PPTranspositionBenchmark.setUpPosition(searcher, seed++, plies);
+			} while (searcher.gameOver());
+			seeds[i] = seed - 1;
+			searchers[i] = searcher;
+			corpus[i] = new PPState(searcher);
+		}
+	}
+
+	public int computeLegalMoves() {
+		int sum = 0;
+		for (PPState state : corpus) {
+			state.computeLegalMoves();
+			sum += state.legalMoveCount;
+		}
+		return sum;
+	}
+
+	public int simpleEval() {
+		int sum = 0;
+		for (PPState state : corpus)
+			sum += state.simpleEval();
+		return sum;
+	}
+
+	public void setEvaluator(String evaluatorClass) {
+		try {
+			evaluator = (PPEvaluator) Class.forName(evaluatorClass).getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create evaluator " + evaluatorClass, e);
+		}
+		for (PPStateMinimax searcher : searchers)
+			if (searcher != null)
+				searcher.setEvaluator(evaluator.copy());
+	}
+
+	public int evaluate() {
+		int sum = 0;
+		for (PPState state : corpus)
+			sum += evaluator.evaluate(state);
+		return sum;
+	}
+
+	public int computeBoardDistances() {
+		int sum = 0;
+		for (PPState state : corpus) {
+			state.computeBoardDistances();
+			sum += state.gridDistance[0][0] + state.gridDistance[1][PPState.NUM_POS - 1];
+		}
+		return sum;
+	}
+
+	public long makeUnmakeMoves() {
+		long sum = 0;
+		for (PPState state : corpus) {
+			int numMoves = state.generateMoves(moves, 0);
+			for (int i = 0; i < numMoves; i++) {
+				int srcPos = PPState.moveSrcPos(moves[i]), destPos = PPState.moveDestPos(moves[i]);
+				state.makeMove(srcPos, destPos);
+				sum += state.hash;
+				state.unmakeMove(srcPos, destPos);
+			}
+		}
+		return sum;
+	}
+
+	public int generateBoards() {
+		int sum = 0;
+		for (long seed : seeds)
+			sum += new PaperPenguins(PPState.SIZE, seed).grid[0][0];
+		return sum;
+	}
+
+	public int generateFactoryBoards() {
+		int sum = 0;
+		for (long seed : seeds) {
+			boardFactory.generate(seed, board, 0);
+			sum += board[0];
+		}
+		return sum;
+	}
+
+	public int getPlay() {
+		int sum = 0;
+		for (PPStateMinimax searcher : searchers) {
+			searcher.transpositionTable.clear();
+			Arrays.fill(searcher.history, 0);
+			sum += searcher.getPlay(Long.MAX_VALUE)[1];
+		}
+		return sum;
+	}
+}
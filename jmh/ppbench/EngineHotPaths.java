@@ -0,0 +1,73 @@
+package ppbench;
+
+/**
+ * EngineHotPaths - the engine operations measured by the JMH benchmarks of this package.  JMH benchmarks must be in a named
+ * package, and classes in a named package cannot refer to the default-package engine classes, so the benchmarks reach the engine
+ * through this interface, implemented by the default-package class PPHotPaths.
+ *
+ * Each operation is applied once to every position of a fixed corpus, and returns a value derived from the results so that
+ * the work cannot be optimized away.
+ */
+public interface EngineHotPaths {
+
+	/**
+	 * game phases of the position corpora
+	 */
+	String PLACEMENT = "placement", OPENING = "opening", MIDDLEGAME = "middlegame", ENDGAME = "endgame";
+
+	/**
+	 * Create the position corpus.
+	 * @param phase - PLACEMENT, OPENING, MIDDLEGAME, or ENDGAME
+	 * @param searchDepth - search depth of getPlay
+	 */
+	void setUp(String phase, int searchDepth);
+
+	int computeLegalMoves();
+
+	int simpleEval();
+
+	int computeBoardDistances();
+
+	/**
+	 * Make and unmake every legal move of every position.
+	 */
+	long makeUnmakeMoves();
+
+	/**
+	 * Generate a PaperPenguins board for each seed of the corpus.
+	 */
+	int generateBoards();
+
+	/**
+	 * Generate the same boards with a PPBoardFactory, bypassing its cache.
+	 */
+	int generateFactoryBoards();
+
+	/**
+	 * Set the evaluator of evaluate and of the corpus searchers.
+	 * @param evaluatorClass - name of a default-package PPEvaluator class
+	 */
+	void setEvaluator(String evaluatorClass);
+
+	/**
+	 * Evaluate every position with the evaluator of setEvaluator.
+	 */
+	int evaluate();
+
+	/**
+	 * Search every position to the fixed search depth from an empty transposition table and cleared move ordering history.
+	 */
+	int getPlay();
+
+	/**
+	 * @return a new instance of the default-package implementation PPHotPaths
+	 */
+	static EngineHotPaths create() {
+		try {
+			return (EngineHotPaths) Class.forName("PPHotPaths").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot create PPHotPaths", e);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package ppbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PPBoardGenerationBenchmark - board generation by PaperPenguins and by PPBoardFactory for the fixed seeds of a position
+ * corpus.  Times are per PPHotPaths.CORPUS_SIZE boards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PPBoardGenerationBenchmark {
+
+	EngineHotPaths engine;
+
+	@Setup
+	public void setUp() {
+		engine = EngineHotPaths.create();
+		engine.setUp(EngineHotPaths.PLACEMENT, 1);
+	}
+
+	@Benchmark
+	public int generateBoards() {
+		return engine.generateBoards();
+	}
+
+	@Benchmark
+	public int generateFactoryBoards() {
+		return engine.generateFactoryBoards();
+	}
+}
@@ -0,0 +1,59 @@
+package ppbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PPEngineBenchmark - move generation, evaluation, and make/unmake round trips over a corpus of positions of each game phase.
+ * Times are per sweep of the corpus of PPHotPaths.CORPUS_SIZE positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PPEngineBenchmark {
+
+	@Param({EngineHotPaths.PLACEMENT, EngineHotPaths.OPENING, EngineHotPaths.MIDDLEGAME, EngineHotPaths.ENDGAME})
+	public String phase;
+
+	EngineHotPaths engine;
+
+	@Setup
+	public void setUp() {
+		engine = EngineHotPaths.create();
+		engine.setUp(phase, 1);
+	}
+
+	@Benchmark
+	public int computeLegalMoves() {
+		return engine.computeLegalMoves();
+	}
+
+	@Benchmark
+	public int simpleEval() {
+		return engine.simpleEval();
+	}
+
+	@Benchmark
+	public int computeBoardDistances() {
+		return engine.computeBoardDistances();
+	}
+
+	@Benchmark
+	public long makeUnmakeMoves() {
+		return engine.makeUnmakeMoves();
+	}
+}
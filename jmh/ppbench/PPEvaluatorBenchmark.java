@@ -0,0 +1,48 @@
+package ppbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PPEvaluatorBenchmark - the PPEvaluator implementations over a corpus of positions of each movement phase.  Times are per sweep
+ * of the corpus of PPHotPaths.CORPUS_SIZE positions.  PPEvaluatorReport compares the playing strength of the evaluators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PPEvaluatorBenchmark {
+
+	@Param({EngineHotPaths.OPENING, EngineHotPaths.MIDDLEGAME, EngineHotPaths.ENDGAME})
+	public String phase;
+
+	@Param({"PPDistanceEval", "PPKingDistanceEval", "PPMobilityEval", "PPVoronoiEval"})
+	public String evaluator;
+
+	EngineHotPaths engine;
+
+	@Setup
+	public void setUp() {
+		engine = EngineHotPaths.create();
+		engine.setUp(phase, 1);
+		engine.setEvaluator(evaluator);
+	}
+
+	@Benchmark
+	public int evaluate() {
+		return engine.evaluate();
+	}
+}
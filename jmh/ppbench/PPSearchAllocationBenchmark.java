@@ -0,0 +1,80 @@
+package ppbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * PPSearchAllocationBenchmark - heap allocation of PPStateMinimax.getPlay after warm-up, over a corpus of positions of each game
+ * phase.  Search generates its moves on a preallocated move stack and reuses its search state, so gc.alloc.rate.norm should be
+ * (close to) 0 bytes per search of the PPHotPaths.CORPUS_SIZE positions.
+ *
+ * Run with the JMH GC profiler:  java -jar target/benchmarks.jar PPSearchAllocationBenchmark -prof gc
+ * or run main, which adds the GC profiler and fails if any phase allocates more than MAX_BYTES_PER_OP per corpus search:
+ *   java -cp target/benchmarks.jar ppbench.PPSearchAllocationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PPSearchAllocationBenchmark {
+
+	/**
+	 * the greatest allowed allocation per corpus search.  The GC profiler attributes a few bytes per millisecond of background
+	 * JVM allocation to each operation, while one array allocated per search node would amount to megabytes.
+	 */
+	public static final double MAX_BYTES_PER_OP = 1024;
+
+	@Param({EngineHotPaths.PLACEMENT, EngineHotPaths.OPENING, EngineHotPaths.MIDDLEGAME, EngineHotPaths.ENDGAME})
+	public String phase;
+
+	@Param({"4"})
+	public int depth;
+
+	EngineHotPaths engine;
+
+	@Setup
+	public void setUp() {
+		engine = EngineHotPaths.create();
+		engine.setUp(phase, depth);
+	}
+
+	@Benchmark
+	public int getPlay() {
+		return engine.getPlay();
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder().include(PPSearchAllocationBenchmark.class.getName() + ".").addProfiler(GCProfiler.class).build();
+		boolean allocates = false;
+		for (RunResult runResult : new Runner(options).run()) {
+			Result<?> allocation = runResult.getSecondaryResults().get("gc.alloc.rate.norm");
+			double bytesPerOp = (allocation == null) ? Double.NaN : allocation.getScore();
+			System.out.printf("%-10s %.1f bytes per corpus search\n", runResult.getParams().getParam("phase"), bytesPerOp);
+			if (!(bytesPerOp <= MAX_BYTES_PER_OP))
+				allocates = true;
+		}
+		if (allocates) {
+			System.out.println("Search allocates.");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package ppbench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PPSearchBenchmark - PPStateMinimax.getPlay at fixed search depths over a corpus of positions of each game phase.  Times are per
+ * search of all PPHotPaths.CORPUS_SIZE positions, each from an empty transposition table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class PPSearchBenchmark {
+
+	@Param({EngineHotPaths.PLACEMENT, EngineHotPaths.OPENING, EngineHotPaths.MIDDLEGAME, EngineHotPaths.ENDGAME})
+	public String phase;
+
+	@Param({"2", "3", "4"})
+	public int depth;
+
+	EngineHotPaths engine;
+
+	@Setup
+	public void setUp() {
+		engine = EngineHotPaths.create();
+		engine.setUp(phase, depth);
+	}
+
+	@Benchmark
+	public int getPlay() {
+		return engine.getPlay();
+	}
+}